@@ -0,0 +1,154 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import org.flywaydb.core.Flyway;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import ru.yandex.practicum.filmorate.dal.IdFilter;
+import ru.yandex.practicum.filmorate.dal.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.dal.film.FilmRecommender;
+import ru.yandex.practicum.filmorate.dal.film.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.dal.film.LikeMatrix;
+import ru.yandex.practicum.filmorate.dal.film.PopularFilmsLeaderboard;
+import ru.yandex.practicum.filmorate.dal.film.TrendingFilms;
+import ru.yandex.practicum.filmorate.dal.mappers.FilmRowMapper;
+import ru.yandex.practicum.filmorate.dal.mappers.UserRowMapper;
+import ru.yandex.practicum.filmorate.dal.user.FriendSuggestionIndex;
+import ru.yandex.practicum.filmorate.dal.user.FriendshipGraph;
+import ru.yandex.practicum.filmorate.dal.user.UserDbStorage;
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class BenchmarkDatabase {
+
+    private static final int BATCH_SIZE = 1000;
+
+    // Без OPTIMIZE_REUSE_RESULTS=FALSE H2 отдаёт повторный запрос с теми же параметрами из результата
+    // прошлого выполнения, и бенчмарк измеряет кэш H2, а не сам запрос
+    public static JdbcTemplate create() {
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;OPTIMIZE_REUSE_RESULTS=FALSE",
+                "sa", "", true);
+        Flyway.configure()
+                .dataSource(dataSource)
+                .load()
+                .migrate();
+        return new JdbcTemplate(dataSource);
+    }
+
+    // Хранилища для бенчмарков: бенчмарк передаёт только измеряемые компоненты, остальные индексы
+    // в памяти создаются выключенными, и запросы идут в базу
+    @Builder(builderMethodName = "filmStorage", builderClassName = "FilmStorageBuilder")
+    private static FilmDbStorage buildFilmStorage(JdbcTemplate jdbc, PopularFilmsLeaderboard leaderboard,
+                                                  LikeMatrix likeMatrix, FilmSearchIndex filmSearchIndex,
+                                                  TrendingFilms trendingFilms, IdFilter filmIdFilter) {
+        if (leaderboard == null) {
+            leaderboard = new PopularFilmsLeaderboard(jdbc, false);
+        }
+        if (likeMatrix == null) {
+            likeMatrix = new LikeMatrix(jdbc, false);
+        }
+        return new FilmDbStorage(jdbc, new FilmRowMapper(), leaderboard, likeMatrix,
+                new FilmRecommender(likeMatrix, 50, 1000, 100, 10000, Duration.ofMinutes(10)),
+                filmSearchIndex != null ? filmSearchIndex : new FilmSearchIndex(jdbc, leaderboard, false, 0.1),
+                trendingFilms != null ? trendingFilms : new TrendingFilms(jdbc, false, 100, 3),
+                filmIdFilter != null ? filmIdFilter : new IdFilter("films", jdbc, "SELECT id FROM films", false),
+                50, 500);
+    }
+
+    @Builder(builderMethodName = "userStorage", builderClassName = "UserStorageBuilder")
+    private static UserDbStorage buildUserStorage(JdbcTemplate jdbc, FriendshipGraph friendshipGraph,
+                                                  FriendSuggestionIndex friendSuggestionIndex,
+                                                  IdFilter userIdFilter) {
+        if (friendshipGraph == null) {
+            friendshipGraph = new FriendshipGraph(jdbc, false);
+        }
+        if (friendSuggestionIndex == null) {
+            friendSuggestionIndex = new FriendSuggestionIndex(friendshipGraph, 500, 100, 10000, Duration.ofMinutes(30));
+        }
+        return new UserDbStorage(jdbc, new UserRowMapper(), new PopularFilmsLeaderboard(jdbc, false),
+                new LikeMatrix(jdbc, false), new TrendingFilms(jdbc, false, 100, 3), friendshipGraph,
+                friendSuggestionIndex,
+                userIdFilter != null ? userIdFilter : new IdFilter("users", jdbc, "SELECT id FROM users", false),
+                500);
+    }
+
+    public static void seedFilms(JdbcTemplate jdbc, int count) {
+        List<Object[]> films = new ArrayList<>(BATCH_SIZE);
+        for (int i = 1; i <= count; i++) {
+            films.add(new Object[]{i, "Фильм " + i, "Описание фильма " + i,
+                    Date.valueOf(LocalDate.of(1950 + i % 70, 1 + i % 12, 1 + i % 28)), 60 + i % 120, 1 + i % 5});
+            if (films.size() == BATCH_SIZE || i == count) {
+                jdbc.batchUpdate("INSERT INTO films (id, name, description, release_date, duration, rating_id) " +
+                        "VALUES (?, ?, ?, ?, ?, ?)", films);
+                films.clear();
+            }
+        }
+        List<Object[]> genres = new ArrayList<>(BATCH_SIZE);
+        for (int i = 1; i <= count; i++) {
+            for (int genreId = 1; genreId <= i % 4; genreId++) {
+                genres.add(new Object[]{i, 1 + (i + genreId) % 6});
+            }
+            if (genres.size() >= BATCH_SIZE || i == count) {
+                jdbc.batchUpdate("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)", genres);
+                genres.clear();
+            }
+        }
+    }
+
+    public static void seedUsers(JdbcTemplate jdbc, int count) {
+        List<Object[]> users = new ArrayList<>(BATCH_SIZE);
+        for (int i = 1; i <= count; i++) {
+            users.add(new Object[]{i, "user" + i + "@mail.ru", "user" + i, "Пользователь " + i,
+                    Date.valueOf(LocalDate.of(1960 + i % 50, 1 + i % 12, 1 + i % 28))});
+            if (users.size() == BATCH_SIZE || i == count) {
+                jdbc.batchUpdate("INSERT INTO users (id, email, login, name, birthday) VALUES (?, ?, ?, ?, ?)", users);
+                users.clear();
+            }
+        }
+    }
+
+    // Друзья пользователя i: i + 1, i + 2, ..., i + friendsPerUser (по модулю числа пользователей),
+    // поэтому у соседних пользователей friendsPerUser - 1 общих друзей
+    public static void seedFriendships(JdbcTemplate jdbc, int userCount, int friendsPerUser) {
+        List<Object[]> friendships = new ArrayList<>(BATCH_SIZE);
+        for (int i = 1; i <= userCount; i++) {
+            for (int k = 1; k <= friendsPerUser; k++) {
+                friendships.add(new Object[]{i, 1 + (i - 1 + k) % userCount});
+            }
+            if (friendships.size() >= BATCH_SIZE || i == userCount) {
+                jdbc.batchUpdate("INSERT INTO friendship (inviter_id, invitee_id, status) VALUES (?, ?, 'APPROVED')",
+                        friendships);
+                friendships.clear();
+            }
+        }
+    }
+
+    // Пользователь i лайкает likesPerUser фильмов подряд, начиная с фильма, зависящего от i по модулю
+    // filmCount / 10, поэтому лайки пользователей с близкими id сильно пересекаются
+    public static void seedLikes(JdbcTemplate jdbc, int userCount, int filmCount, int likesPerUser) {
+        List<Object[]> likes = new ArrayList<>(BATCH_SIZE);
+        int groups = Math.max(filmCount / 10, 1);
+        for (int i = 1; i <= userCount; i++) {
+            int start = (int) ((long) i * 7 % groups) * 10;
+            for (int k = 0; k < likesPerUser; k++) {
+                likes.add(new Object[]{1 + (start + k) % filmCount, i});
+            }
+            if (likes.size() >= BATCH_SIZE || i == userCount) {
+                jdbc.batchUpdate("MERGE INTO film_likes (film_id, user_id) VALUES (?, ?)", likes);
+                likes.clear();
+            }
+        }
+    }
+
+    public static void seedLikeCounts(JdbcTemplate jdbc) {
+        jdbc.update("UPDATE films SET like_count = MOD(id * 7919, 1000)");
+    }
+}
@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.yandex.practicum.filmorate.dto.film.FilmResponse;
+import ru.yandex.practicum.filmorate.mapper.FilmMapper;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FilmJsonBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    private int filmCount;
+
+    // Те же настройки Jackson, что и у ObjectMapper, который создаёт Spring Boot
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private List<FilmResponse> films;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        films = new ArrayList<>(filmCount);
+        for (int i = 1; i <= filmCount; i++) {
+            films.add(FilmMapper.mapToFilmResponse(Film.builder()
+                    .id((long) i)
+                    .name("Фильм " + i)
+                    .description("Описание фильма " + i)
+                    .releaseDate(LocalDate.of(1950 + i % 70, 1 + i % 12, 1 + i % 28))
+                    .duration(60 + i % 120)
+                    .mpa(MpaRating.builder().id(1 + i % 5).name("PG").build())
+                    .genres(List.of(Genre.builder().id(1 + i % 6).name("Драма").build()))
+                    .build()));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeFilms() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(films);
+    }
+}
@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.dal.film;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.BenchmarkDatabase;
+import ru.yandex.practicum.filmorate.model.Film;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FilmSearchBenchmark {
+
+    @Param({"10000", "100000"})
+    private int filmCount;
+
+    // Редкое слово, начало слова из каждого названия и слово с опечаткой
+    @Param({"фильм 4242", "фил", "описане"})
+    private String query;
+
+    // true — обратный индекс в памяти, false — LIKE по названию и описанию
+    @Param({"true", "false"})
+    private boolean inMemory;
+
+    private FilmDbStorage filmStorage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        JdbcTemplate jdbc = BenchmarkDatabase.create();
+        BenchmarkDatabase.seedFilms(jdbc, filmCount);
+        BenchmarkDatabase.seedLikeCounts(jdbc);
+        PopularFilmsLeaderboard leaderboard = new PopularFilmsLeaderboard(jdbc, true);
+        leaderboard.load();
+        FilmSearchIndex filmSearchIndex = new FilmSearchIndex(jdbc, leaderboard, inMemory, 0.1);
+        filmSearchIndex.load();
+        filmStorage = BenchmarkDatabase.filmStorage()
+                .jdbc(jdbc)
+                .leaderboard(leaderboard)
+                .filmSearchIndex(filmSearchIndex)
+                .build();
+    }
+
+    @Benchmark
+    public List<Film> searchFilms() {
+        return filmStorage.searchFilms(query, 10);
+    }
+}
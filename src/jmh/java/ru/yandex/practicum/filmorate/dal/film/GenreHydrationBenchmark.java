@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.dal.film;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.BenchmarkDatabase;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import java.sql.PreparedStatement;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class GenreHydrationBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int filmCount;
+
+    private JdbcTemplate jdbc;
+    private FilmDbStorage filmStorage;
+    private List<Film> films;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        jdbc = BenchmarkDatabase.create();
+        BenchmarkDatabase.seedFilms(jdbc, filmCount);
+        filmStorage = BenchmarkDatabase.filmStorage()
+                .jdbc(jdbc)
+                .build();
+        films = filmStorage.getAllFilms();
+    }
+
+    @Benchmark
+    public List<Film> arrayParameter() {
+        films.forEach(film -> film.setGenres(null));
+        filmStorage.findGenresForFilms(films);
+        return films;
+    }
+
+    @Benchmark
+    public List<Film> fullScan() {
+        films.forEach(film -> film.setGenres(null));
+        filmStorage.findGenresForAllFilms(films);
+        return films;
+    }
+
+    @Benchmark
+    public List<Film> singleInClause() {
+        films.forEach(film -> film.setGenres(null));
+        findGenresWithSingleInClause(films);
+        return films;
+    }
+
+    // Прежняя реализация: один запрос с отдельным параметром на каждый фильм
+    private void findGenresWithSingleInClause(List<Film> films) {
+        List<Long> filmIds = films.stream().map(Film::getId).toList();
+        Map<Long, Film> mapFilmIdToFilm = new HashMap<>();
+        for (Film film : films) {
+            mapFilmIdToFilm.put(film.getId(), film);
+        }
+        jdbc.query(connection -> {
+            PreparedStatement stmt = connection.prepareStatement("SELECT g.id AS genre_id, g.name AS genre_name, " +
+                    "fg.film_id FROM film_genres AS fg LEFT join genres AS g ON fg.genre_id = g.id " +
+                    "WHERE film_id IN (" + String.join(", ", Collections.nCopies(filmIds.size(), "?")) + ")");
+            for (int i = 0; i < filmIds.size(); i++) {
+                stmt.setLong(i + 1, filmIds.get(i));
+            }
+            return stmt;
+        }, rs -> {
+            Film film = mapFilmIdToFilm.get(rs.getLong("film_id"));
+            if (film.getGenres() == null) {
+                film.setGenres(new ArrayList<>());
+            }
+            film.getGenres().add(Genre.builder()
+                    .id(rs.getInt("genre_id"))
+                    .name(rs.getString("genre_name"))
+                    .build());
+        });
+    }
+}
@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.dal.film;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.BenchmarkDatabase;
+import ru.yandex.practicum.filmorate.model.Film;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PopularFilmsBenchmark {
+
+    @Param({"1000", "100000"})
+    private int filmCount;
+
+    @Param({"10", "100"})
+    private int count;
+
+    // true — рейтинг в памяти, false — запрос по индексу like_count
+    @Param({"true", "false"})
+    private boolean inMemory;
+
+    private FilmDbStorage filmStorage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        JdbcTemplate jdbc = BenchmarkDatabase.create();
+        BenchmarkDatabase.seedFilms(jdbc, filmCount);
+        BenchmarkDatabase.seedLikeCounts(jdbc);
+        PopularFilmsLeaderboard leaderboard = new PopularFilmsLeaderboard(jdbc, inMemory);
+        leaderboard.load();
+        filmStorage = BenchmarkDatabase.filmStorage()
+                .jdbc(jdbc)
+                .leaderboard(leaderboard)
+                .build();
+    }
+
+    @Benchmark
+    public List<Film> getPopularFilms() {
+        return filmStorage.getPopularFilms(count);
+    }
+
+    // Фильмы одного жанра с одним рейтингом MPA
+    @Benchmark
+    public List<Film> getPopularFilmsByGenreAndMpa() {
+        return filmStorage.getPopularFilms(count, 1, 1, null);
+    }
+}
@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.dal.film;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.BenchmarkDatabase;
+import ru.yandex.practicum.filmorate.model.Film;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Стоимость расчёта рекомендаций одного пользователя без кэша: по матрице лайков в памяти
+// и SQL-запросом по film_likes
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RecommendationsBenchmark {
+
+    private static final int FILM_COUNT = 10000;
+
+    @Param({"10000"})
+    private int userCount;
+
+    @Param({"20", "100"})
+    private int likesPerUser;
+
+    private FilmRecommender filmRecommender;
+    private FilmDbStorage sqlStorage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        JdbcTemplate jdbc = BenchmarkDatabase.create();
+        BenchmarkDatabase.seedFilms(jdbc, FILM_COUNT);
+        BenchmarkDatabase.seedUsers(jdbc, userCount);
+        BenchmarkDatabase.seedLikes(jdbc, userCount, FILM_COUNT, likesPerUser);
+        LikeMatrix likeMatrix = new LikeMatrix(jdbc, true);
+        likeMatrix.load();
+        filmRecommender = new FilmRecommender(likeMatrix, 50, 1000, 100, 10000, Duration.ofMinutes(10));
+        sqlStorage = BenchmarkDatabase.filmStorage()
+                .jdbc(jdbc)
+                .build();
+    }
+
+    @Benchmark
+    public List<Long> inMemory() {
+        return filmRecommender.compute(userCount / 2);
+    }
+
+    @Benchmark
+    public List<Film> sql() {
+        return sqlStorage.getRecommendedFilms(userCount / 2, 100);
+    }
+}
@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.dal.film;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.BenchmarkDatabase;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.TrendingPeriod;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Запрос трендов: готовый список из пересчитанных по расписанию счётчиков
+// против агрегации film_likes за окно периода при каждом запросе
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TrendingFilmsBenchmark {
+
+    private static final int FILM_COUNT = 10000;
+
+    @Param({"1000", "10000"})
+    private int userCount;
+
+    @Param({"20"})
+    private int likesPerUser;
+
+    @Param({"true", "false"})
+    private boolean inMemory;
+
+    private FilmDbStorage filmStorage;
+    private TrendingFilms trendingFilms;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        JdbcTemplate jdbc = BenchmarkDatabase.create();
+        BenchmarkDatabase.seedFilms(jdbc, FILM_COUNT);
+        BenchmarkDatabase.seedUsers(jdbc, userCount);
+        BenchmarkDatabase.seedLikes(jdbc, userCount, FILM_COUNT, likesPerUser);
+        trendingFilms = new TrendingFilms(jdbc, inMemory, 100, 3);
+        trendingFilms.load();
+        filmStorage = BenchmarkDatabase.filmStorage()
+                .jdbc(jdbc)
+                .trendingFilms(trendingFilms)
+                .build();
+    }
+
+    @Benchmark
+    public List<Film> getTrendingFilms() {
+        return filmStorage.getTrendingFilms(TrendingPeriod.DAY, 10);
+    }
+
+    // Плановый пересчёт рейтингов всех периодов
+    @Benchmark
+    public void refresh() {
+        trendingFilms.refresh();
+    }
+}
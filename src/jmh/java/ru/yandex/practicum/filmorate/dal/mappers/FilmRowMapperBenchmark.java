@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.dal.mappers;
+
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.yandex.practicum.filmorate.model.Film;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FilmRowMapperBenchmark {
+
+    @Param({"100", "10000"})
+    private int rowCount;
+
+    private final FilmRowMapper mapper = new FilmRowMapper();
+    // Строки списка фильмов (без колонок жанров) и строки одного фильма с тремя жанрами
+    private SimpleResultSet filmRows;
+    private SimpleResultSet filmWithGenreRows;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        filmRows = resultSet(false);
+        for (int i = 1; i <= rowCount; i++) {
+            filmRows.addRow(filmRow(i));
+        }
+        filmWithGenreRows = resultSet(true);
+        for (int genreId = 1; genreId <= 3; genreId++) {
+            Object[] row = filmRow(1);
+            Object[] rowWithGenre = new Object[row.length + 2];
+            System.arraycopy(row, 0, rowWithGenre, 0, row.length);
+            rowWithGenre[row.length] = genreId;
+            rowWithGenre[row.length + 1] = "Жанр " + genreId;
+            filmWithGenreRows.addRow(rowWithGenre);
+        }
+    }
+
+    @Benchmark
+    public void mapFilmRows(Blackhole blackhole) throws SQLException {
+        filmRows.beforeFirst();
+        int rowNum = 0;
+        while (filmRows.next()) {
+            blackhole.consume(mapper.mapRow(filmRows, rowNum++));
+        }
+    }
+
+    @Benchmark
+    public Film mapFilmWithGenres() throws SQLException {
+        filmWithGenreRows.beforeFirst();
+        filmWithGenreRows.next();
+        return mapper.mapRow(filmWithGenreRows, 0);
+    }
+
+    private static SimpleResultSet resultSet(boolean withGenreColumns) {
+        SimpleResultSet resultSet = new SimpleResultSet();
+        resultSet.setAutoClose(false);
+        resultSet.addColumn("film_id", Types.BIGINT, 19, 0);
+        resultSet.addColumn("name", Types.VARCHAR, 300, 0);
+        resultSet.addColumn("description", Types.VARCHAR, 200, 0);
+        resultSet.addColumn("release_date", Types.DATE, 10, 0);
+        resultSet.addColumn("duration", Types.INTEGER, 10, 0);
+        resultSet.addColumn("mpa_id", Types.INTEGER, 10, 0);
+        resultSet.addColumn("mpa_name", Types.VARCHAR, 300, 0);
+        if (withGenreColumns) {
+            resultSet.addColumn("genre_id", Types.INTEGER, 10, 0);
+            resultSet.addColumn("genre_name", Types.VARCHAR, 300, 0);
+        }
+        return resultSet;
+    }
+
+    private static Object[] filmRow(int i) {
+        return new Object[]{(long) i, "Фильм " + i, "Описание фильма " + i,
+                Date.valueOf(LocalDate.of(1950 + i % 70, 1 + i % 12, 1 + i % 28)), 60 + i % 120, 1 + i % 5, "PG"};
+    }
+}
@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.dal.user;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.BenchmarkDatabase;
+import ru.yandex.practicum.filmorate.model.User;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CommonFriendsBenchmark {
+
+    @Param({"1000", "10000"})
+    private int userCount;
+
+    @Param({"10", "100"})
+    private int friendsPerUser;
+
+    // true — граф дружбы в памяти, false — подзапросы к таблице friendship
+    @Param({"true", "false"})
+    private boolean inMemory;
+
+    private UserDbStorage userStorage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        JdbcTemplate jdbc = BenchmarkDatabase.create();
+        BenchmarkDatabase.seedUsers(jdbc, userCount);
+        BenchmarkDatabase.seedFriendships(jdbc, userCount, friendsPerUser);
+        FriendshipGraph friendshipGraph = new FriendshipGraph(jdbc, inMemory);
+        friendshipGraph.load();
+        userStorage = BenchmarkDatabase.userStorage()
+                .jdbc(jdbc)
+                .friendshipGraph(friendshipGraph)
+                .build();
+    }
+
+    @Benchmark
+    public List<User> getCommonFriends() {
+        return userStorage.getCommonFriends(userCount / 2, userCount / 2 + 1);
+    }
+}
@@ -0,0 +1,40 @@
+package ru.yandex.practicum.filmorate.dal.user;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.BenchmarkDatabase;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Стоимость пересчёта рекомендаций одного пользователя без кэша
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FriendSuggestionsBenchmark {
+
+    @Param({"10000"})
+    private int userCount;
+
+    @Param({"10", "100", "300"})
+    private int friendsPerUser;
+
+    private FriendSuggestionIndex friendSuggestionIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        JdbcTemplate jdbc = BenchmarkDatabase.create();
+        BenchmarkDatabase.seedUsers(jdbc, userCount);
+        BenchmarkDatabase.seedFriendships(jdbc, userCount, friendsPerUser);
+        FriendshipGraph friendshipGraph = new FriendshipGraph(jdbc, true);
+        friendshipGraph.load();
+        friendSuggestionIndex = new FriendSuggestionIndex(friendshipGraph, 500, 100, 10000, Duration.ofMinutes(30));
+    }
+
+    @Benchmark
+    public List<FriendSuggestionIndex.Candidate> computeSuggestions() {
+        return friendSuggestionIndex.compute(userCount / 2);
+    }
+}
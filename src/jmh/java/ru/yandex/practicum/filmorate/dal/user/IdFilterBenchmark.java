@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.dal.user;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.BenchmarkDatabase;
+import ru.yandex.practicum.filmorate.dal.IdFilter;
+import ru.yandex.practicum.filmorate.model.User;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class IdFilterBenchmark {
+
+    @Param({"10000", "100000"})
+    private int userCount;
+
+    // true — несуществующие id отсекаются фильтром кукушки, false — каждый поиск идёт в базу
+    @Param({"true", "false"})
+    private boolean filtered;
+
+    private UserDbStorage userStorage;
+    private long missingId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        JdbcTemplate jdbc = BenchmarkDatabase.create();
+        BenchmarkDatabase.seedUsers(jdbc, userCount);
+        IdFilter userIdFilter = new IdFilter("users", jdbc, "SELECT id FROM users", filtered);
+        userIdFilter.load();
+        userStorage = BenchmarkDatabase.userStorage()
+                .jdbc(jdbc)
+                .userIdFilter(userIdFilter)
+                .build();
+        missingId = userCount;
+    }
+
+    // Перебор id подряд за пределами таблицы, как у сканеров
+    @Benchmark
+    public Optional<User> getMissingUser() {
+        missingId++;
+        return userStorage.getUserById(missingId);
+    }
+
+    @Benchmark
+    public Optional<User> getExistingUser() {
+        return userStorage.getUserById(userCount / 2);
+    }
+}
@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.mapper;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FilmMapperBenchmark {
+
+    @Param({"100", "10000"})
+    private int filmCount;
+
+    private List<Film> films;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        films = new ArrayList<>(filmCount);
+        for (int i = 1; i <= filmCount; i++) {
+            List<Genre> genres = new ArrayList<>();
+            for (int genreId = 1; genreId <= i % 4; genreId++) {
+                genres.add(Genre.builder().id(genreId).name("Жанр " + genreId).build());
+            }
+            films.add(Film.builder()
+                    .id((long) i)
+                    .name("Фильм " + i)
+                    .description("Описание фильма " + i)
+                    .releaseDate(LocalDate.of(1950 + i % 70, 1 + i % 12, 1 + i % 28))
+                    .duration(60 + i % 120)
+                    .mpa(MpaRating.builder().id(1 + i % 5).name("PG").build())
+                    .genres(genres.isEmpty() ? null : genres)
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public void mapToFilmResponse(Blackhole blackhole) {
+        for (Film film : films) {
+            blackhole.consume(FilmMapper.mapToFilmResponse(film));
+        }
+    }
+}
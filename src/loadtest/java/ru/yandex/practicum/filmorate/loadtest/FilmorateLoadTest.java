@@ -0,0 +1,122 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.dal.IdFilter;
+import ru.yandex.practicum.filmorate.dal.film.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.dal.film.LikeCountReconciler;
+import ru.yandex.practicum.filmorate.dal.film.LikeMatrix;
+import ru.yandex.practicum.filmorate.dal.film.TrendingFilms;
+import ru.yandex.practicum.filmorate.dal.user.FriendshipGraph;
+import ru.yandex.practicum.filmorate.loadtest.OpenModelLoadGenerator.EndpointResult;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Slf4j
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1",
+        "logging.level.ru.yandex.practicum.filmorate.controller=WARN"
+})
+public class FilmorateLoadTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private LikeCountReconciler likeCountReconciler;
+
+    @Autowired
+    @Qualifier("userIdFilter")
+    private IdFilter userIdFilter;
+
+    @Autowired
+    @Qualifier("filmIdFilter")
+    private IdFilter filmIdFilter;
+
+    @Autowired
+    private FriendshipGraph friendshipGraph;
+
+    @Autowired
+    private LikeMatrix likeMatrix;
+
+    @Autowired
+    private FilmSearchIndex filmSearchIndex;
+
+    @Autowired
+    private TrendingFilms trendingFilms;
+
+    @Test
+    public void latencyDoesNotRegress() throws IOException {
+        LoadProfile profile = LoadProfile.fromSystemProperties();
+        log.info("Заполнение базы: {} пользователей, {} фильмов", profile.getUsers(), profile.getFilms());
+        LoadTestDataset.seed(jdbcTemplate, profile);
+        likeCountReconciler.backfill();
+        reloadIndexes();
+
+        Map<String, EndpointResult> results = new OpenModelLoadGenerator(profile, port).run();
+        report(profile, results);
+
+        results.values().forEach(result -> assertThat(result.errors())
+                .as("Ошибки на эндпоинте %s", result.endpoint())
+                .isZero());
+        if (profile.isUpdateBaseline()) {
+            LatencyBaseline.save(profile.getBaselineFile(), results);
+            log.info("Базовые значения p99 сохранены в {}", profile.getBaselineFile().toAbsolutePath());
+            return;
+        }
+        LatencyBaseline baseline = LatencyBaseline.load(profile.getBaselineFile());
+        if (baseline.isEmpty()) {
+            log.warn("Базовые значения p99 не найдены в {}, сравнение пропущено", profile.getBaselineFile());
+            return;
+        }
+        List<String> regressions = baseline.findRegressions(results, profile.getTolerance());
+        assertThat(regressions)
+                .as("p99 превысил базовое значение больше чем на %.0f%%", profile.getTolerance() * 100)
+                .isEmpty();
+    }
+
+    // Данные пишутся в базу в обход хранилищ уже после старта, поэтому индексы в памяти,
+    // загруженные при старте, нужно построить заново. Рейтинг популярных фильмов
+    // перезагружает backfill
+    private void reloadIndexes() {
+        userIdFilter.load();
+        filmIdFilter.load();
+        friendshipGraph.load();
+        likeMatrix.load();
+        filmSearchIndex.load();
+        trendingFilms.load();
+    }
+
+    private void report(LoadProfile profile, Map<String, EndpointResult> results) throws IOException {
+        Files.createDirectories(profile.getReportDir());
+        StringBuilder summary = new StringBuilder(String.format("%n%-15s %8s %7s %10s %10s %10s %10s%n",
+                "endpoint", "count", "errors", "p50, мс", "p99, мс", "p999, мс", "max, мс"));
+        for (EndpointResult result : results.values()) {
+            summary.append(String.format("%-15s %8d %7d %10.2f %10.2f %10.2f %10.2f%n",
+                    result.endpoint(), result.count(), result.errors(),
+                    result.percentileMicros(50.0) / 1000.0,
+                    result.percentileMicros(99.0) / 1000.0,
+                    result.percentileMicros(99.9) / 1000.0,
+                    result.histogram().getMaxValue() / 1000.0));
+            // Полное распределение в формате HdrHistogram (.hgrm), значения в миллисекундах
+            Path file = profile.getReportDir().resolve(result.endpoint() + ".hgrm");
+            try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+                result.histogram().outputPercentileDistribution(out, 1000.0);
+            }
+        }
+        log.info("Результаты нагрузочного теста:{}", summary);
+    }
+}
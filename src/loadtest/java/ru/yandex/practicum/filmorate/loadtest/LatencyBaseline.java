@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+import ru.yandex.practicum.filmorate.loadtest.OpenModelLoadGenerator.EndpointResult;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+// Сохранённые значения p99 по эндпоинтам (в микросекундах), с которыми сравнивается каждый прогон
+public class LatencyBaseline {
+
+    private static final String P99_SUFFIX = ".p99-micros";
+
+    private final Properties properties;
+
+    private LatencyBaseline(Properties properties) {
+        this.properties = properties;
+    }
+
+    public static LatencyBaseline load(Path file) throws IOException {
+        Properties properties = new Properties();
+        if (Files.exists(file)) {
+            try (Reader reader = Files.newBufferedReader(file)) {
+                properties.load(reader);
+            }
+        }
+        return new LatencyBaseline(properties);
+    }
+
+    public static void save(Path file, Map<String, EndpointResult> results) throws IOException {
+        Properties properties = new Properties();
+        results.values().stream()
+                .filter(result -> result.count() > 0)
+                .forEach(result -> properties.setProperty(result.endpoint() + P99_SUFFIX,
+                        String.valueOf(result.percentileMicros(99.0))));
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            properties.store(writer, "p99 latency baseline, microseconds");
+        }
+    }
+
+    public boolean isEmpty() {
+        return properties.isEmpty();
+    }
+
+    // Возвращает описания эндпоинтов, у которых p99 превысил базовое значение больше чем на tolerance
+    public List<String> findRegressions(Map<String, EndpointResult> results, double tolerance) {
+        List<String> regressions = new ArrayList<>();
+        for (EndpointResult result : results.values()) {
+            String baseline = properties.getProperty(result.endpoint() + P99_SUFFIX);
+            if (baseline == null || result.count() == 0) {
+                continue;
+            }
+            long baselineMicros = Long.parseLong(baseline.trim());
+            long limitMicros = Math.round(baselineMicros * (1 + tolerance));
+            long p99Micros = result.percentileMicros(99.0);
+            if (p99Micros > limitMicros) {
+                regressions.add(String.format("%s: p99 = %d мкс, базовое значение %d мкс, допустимо до %d мкс",
+                        result.endpoint(), p99Micros, baselineMicros, limitMicros));
+            }
+        }
+        return regressions;
+    }
+}
@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+import lombok.Builder;
+import lombok.Value;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Value
+@Builder
+public class LoadProfile {
+
+    // Суммарная интенсивность поступления запросов (запросов в секунду), не зависит от времени ответа
+    int rate;
+    Duration warmup;
+    Duration duration;
+    Map<String, Integer> mix;
+    int users;
+    int films;
+    int friendsPerUser;
+    int likesPerUser;
+    int popularCount;
+    double tolerance;
+    boolean updateBaseline;
+    Path baselineFile;
+    Path reportDir;
+
+    public static LoadProfile fromSystemProperties() {
+        return LoadProfile.builder()
+                .rate(Integer.getInteger("loadtest.rate", 200))
+                .warmup(Duration.parse(System.getProperty("loadtest.warmup", "PT10S")))
+                .duration(Duration.parse(System.getProperty("loadtest.duration", "PT30S")))
+                .mix(parseMix(System.getProperty("loadtest.mix", "popular:60,common-friends:25,like:15")))
+                .users(Integer.getInteger("loadtest.users", 10_000))
+                .films(Integer.getInteger("loadtest.films", 10_000))
+                .friendsPerUser(Integer.getInteger("loadtest.friends-per-user", 50))
+                .likesPerUser(Integer.getInteger("loadtest.likes-per-user", 20))
+                .popularCount(Integer.getInteger("loadtest.popular-count", 10))
+                .tolerance(Double.parseDouble(System.getProperty("loadtest.tolerance", "0.25")))
+                .updateBaseline(Boolean.getBoolean("loadtest.update-baseline"))
+                .baselineFile(Path.of(System.getProperty("loadtest.baseline-file",
+                        "src/loadtest/resources/loadtest-baseline.properties")))
+                .reportDir(Path.of(System.getProperty("loadtest.report-dir", "target/loadtest")))
+                .build();
+    }
+
+    // Формат: "popular:60,common-friends:25,like:15", веса задают долю сценария в общем потоке
+    static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Некорректный элемент смеси нагрузки: " + entry);
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0) {
+                weights.put(parts[0].trim(), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("Смесь нагрузки не содержит ни одного сценария: " + mix);
+        }
+        return weights;
+    }
+}
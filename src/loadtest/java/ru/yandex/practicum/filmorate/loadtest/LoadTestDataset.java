@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class LoadTestDataset {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final long SEED = 42;
+
+    // Лайки при заполнении ставят только пользователи из первой половины, вторая половина
+    // остаётся за сценарием like/unlike, поэтому его состояние заранее известно
+    public static void seed(JdbcTemplate jdbc, LoadProfile profile) {
+        seedUsers(jdbc, profile.getUsers());
+        seedFilms(jdbc, profile.getFilms());
+        seedFriendships(jdbc, profile.getUsers(), profile.getFriendsPerUser());
+        seedLikes(jdbc, firstLikeToggleUser(profile) - 1, profile.getFilms(), profile.getLikesPerUser());
+        jdbc.execute("ALTER TABLE users ALTER COLUMN id RESTART WITH " + (profile.getUsers() + 1));
+        jdbc.execute("ALTER TABLE films ALTER COLUMN id RESTART WITH " + (profile.getFilms() + 1));
+    }
+
+    public static long firstLikeToggleUser(LoadProfile profile) {
+        return profile.getUsers() / 2 + 1;
+    }
+
+    private static void seedUsers(JdbcTemplate jdbc, int count) {
+        List<Object[]> users = new ArrayList<>(BATCH_SIZE);
+        for (int i = 1; i <= count; i++) {
+            users.add(new Object[]{i, "user" + i + "@mail.ru", "user" + i, "Пользователь " + i,
+                    Date.valueOf(LocalDate.of(1960 + i % 50, 1 + i % 12, 1 + i % 28))});
+            if (users.size() == BATCH_SIZE || i == count) {
+                jdbc.batchUpdate("INSERT INTO users (id, email, login, name, birthday) VALUES (?, ?, ?, ?, ?)", users);
+                users.clear();
+            }
+        }
+    }
+
+    private static void seedFilms(JdbcTemplate jdbc, int count) {
+        List<Object[]> films = new ArrayList<>(BATCH_SIZE);
+        List<Object[]> genres = new ArrayList<>(BATCH_SIZE);
+        for (int i = 1; i <= count; i++) {
+            films.add(new Object[]{i, "Фильм " + i, "Описание фильма " + i,
+                    Date.valueOf(LocalDate.of(1950 + i % 70, 1 + i % 12, 1 + i % 28)), 60 + i % 120, 1 + i % 5});
+            for (int genreId = 1; genreId <= i % 4; genreId++) {
+                genres.add(new Object[]{i, 1 + (i + genreId) % 6});
+            }
+            if (films.size() == BATCH_SIZE || i == count) {
+                jdbc.batchUpdate("INSERT INTO films (id, name, description, release_date, duration, rating_id) " +
+                        "VALUES (?, ?, ?, ?, ?, ?)", films);
+                jdbc.batchUpdate("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)", genres);
+                films.clear();
+                genres.clear();
+            }
+        }
+    }
+
+    // Друзья пользователя i: i + 1, ..., i + friendsPerUser (по модулю числа пользователей),
+    // поэтому у соседних пользователей friendsPerUser - 1 общих друзей
+    private static void seedFriendships(JdbcTemplate jdbc, int userCount, int friendsPerUser) {
+        List<Object[]> friendships = new ArrayList<>(BATCH_SIZE);
+        for (int i = 1; i <= userCount; i++) {
+            for (int k = 1; k <= friendsPerUser; k++) {
+                friendships.add(new Object[]{i, 1 + (i - 1 + k) % userCount});
+            }
+            if (friendships.size() >= BATCH_SIZE || i == userCount) {
+                jdbc.batchUpdate("INSERT INTO friendship (inviter_id, invitee_id, status) VALUES (?, ?, 'APPROVED')",
+                        friendships);
+                friendships.clear();
+            }
+        }
+    }
+
+    // Популярность фильмов распределена неравномерно: фильмы с маленькими id получают больше лайков
+    private static void seedLikes(JdbcTemplate jdbc, long userCount, int filmCount, int likesPerUser) {
+        Random random = new Random(SEED);
+        List<Object[]> likes = new ArrayList<>(BATCH_SIZE);
+        Set<Integer> userFilms = new HashSet<>();
+        for (long userId = 1; userId <= userCount; userId++) {
+            userFilms.clear();
+            while (userFilms.size() < Math.min(likesPerUser, filmCount)) {
+                double r = random.nextDouble();
+                userFilms.add(1 + (int) (filmCount * r * r * r));
+            }
+            for (int filmId : userFilms) {
+                likes.add(new Object[]{filmId, userId});
+            }
+            if (likes.size() >= BATCH_SIZE || userId == userCount) {
+                jdbc.batchUpdate("INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)", likes);
+                likes.clear();
+            }
+        }
+    }
+}
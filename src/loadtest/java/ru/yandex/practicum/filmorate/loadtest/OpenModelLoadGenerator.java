@@ -0,0 +1,213 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Открытая модель нагрузки: запросы поступают с заданной интенсивностью независимо от того,
+// успел ли сервер ответить на предыдущие. Задержка отсчитывается от запланированного момента
+// отправки, поэтому очередь перед сервером попадает в измерения (без coordinated omission)
+@Slf4j
+public class OpenModelLoadGenerator {
+
+    public static final String POPULAR = "popular";
+    public static final String COMMON_FRIENDS = "common-friends";
+    public static final String LIKE = "like";
+    public static final String UNLIKE = "unlike";
+
+    private static final List<String> SCENARIOS = List.of(POPULAR, COMMON_FRIENDS, LIKE);
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final LoadProfile profile;
+    private final String baseUrl;
+    private final HttpClient client;
+    private final Map<String, Recorder> recorders = new LinkedHashMap<>();
+    private final Map<String, AtomicLong> errors = new LinkedHashMap<>();
+    private final String[] scenarioByWeight;
+    private final long firstLikeToggleUser;
+    // Состояние пар (фильм, пользователь) сценария like/unlike: поставленные лайки,
+    // лайки, которые можно снять, и пары, по которым сейчас идёт запрос
+    private final Set<Long> likedPairs = ConcurrentHashMap.newKeySet();
+    private final Queue<Long> likesToRemove = new ConcurrentLinkedQueue<>();
+    private final Set<Long> pairsInFlight = ConcurrentHashMap.newKeySet();
+
+    public OpenModelLoadGenerator(LoadProfile profile, int port) {
+        for (String scenario : profile.getMix().keySet()) {
+            if (!SCENARIOS.contains(scenario)) {
+                throw new IllegalArgumentException("Неизвестный сценарий нагрузки: " + scenario
+                        + ", допустимые значения: " + SCENARIOS);
+            }
+        }
+        this.profile = profile;
+        this.baseUrl = "http://localhost:" + port;
+        this.client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        for (String endpoint : List.of(POPULAR, COMMON_FRIENDS, LIKE, UNLIKE)) {
+            recorders.put(endpoint, new Recorder(HIGHEST_TRACKABLE_MICROS, 3));
+            errors.put(endpoint, new AtomicLong());
+        }
+        this.scenarioByWeight = profile.getMix().entrySet().stream()
+                .flatMap(entry -> Collections.nCopies(entry.getValue(), entry.getKey()).stream())
+                .toArray(String[]::new);
+        this.firstLikeToggleUser = LoadTestDataset.firstLikeToggleUser(profile);
+    }
+
+    public Map<String, EndpointResult> run() {
+        log.info("Прогрев: {} с интенсивностью {} запросов/с", profile.getWarmup(), profile.getRate());
+        drive(profile.getWarmup());
+        recorders.values().forEach(Recorder::reset);
+        errors.values().forEach(counter -> counter.set(0));
+
+        log.info("Измерение: {} с интенсивностью {} запросов/с, смесь {}",
+                profile.getDuration(), profile.getRate(), profile.getMix());
+        drive(profile.getDuration());
+
+        Map<String, EndpointResult> results = new LinkedHashMap<>();
+        recorders.forEach((endpoint, recorder) -> results.put(endpoint,
+                new EndpointResult(endpoint, recorder.getIntervalHistogram(), errors.get(endpoint).get())));
+        return results;
+    }
+
+    private void drive(Duration duration) {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / profile.getRate();
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; ; i++) {
+                long intendedStart = start + i * intervalNanos;
+                if (intendedStart >= end) {
+                    break;
+                }
+                long delay = intendedStart - System.nanoTime();
+                if (delay > 0) {
+                    LockSupport.parkNanos(delay);
+                }
+                String scenario = scenarioByWeight[ThreadLocalRandom.current().nextInt(scenarioByWeight.length)];
+                executor.execute(() -> execute(scenario, intendedStart));
+            }
+        }
+    }
+
+    private void execute(String scenario, long intendedStart) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (scenario) {
+            case POPULAR -> send(POPULAR, "GET", "/films/popular?count=" + profile.getPopularCount(), intendedStart);
+            case COMMON_FRIENDS -> {
+                long userId = 1 + random.nextInt(profile.getUsers());
+                long otherId = 1 + userId % profile.getUsers();
+                send(COMMON_FRIENDS, "GET", "/users/" + userId + "/friends/common/" + otherId, intendedStart);
+            }
+            case LIKE -> toggleLike(random, intendedStart);
+            default -> throw new IllegalStateException("Неизвестный сценарий нагрузки: " + scenario);
+        }
+    }
+
+    // Сценарий like/unlike с равной вероятностью снимает один из поставленных им лайков или ставит новый.
+    // Пара, по которой ещё идёт запрос, не используется повторно, чтобы не получить двойной лайк
+    private void toggleLike(ThreadLocalRandom random, long intendedStart) {
+        Long likedPair = random.nextBoolean() ? likesToRemove.poll() : null;
+        if (likedPair != null) {
+            acquire(likedPair);
+            try {
+                if (send(UNLIKE, "DELETE", likePath(likedPair), intendedStart)) {
+                    likedPairs.remove(likedPair);
+                } else {
+                    likesToRemove.add(likedPair);
+                }
+            } finally {
+                pairsInFlight.remove(likedPair);
+            }
+            return;
+        }
+        long pair;
+        do {
+            long filmId = 1 + random.nextInt(profile.getFilms());
+            long userId = random.nextLong(firstLikeToggleUser, profile.getUsers() + 1L);
+            pair = filmId * (profile.getUsers() + 1L) + userId;
+        } while (!tryAcquireUnliked(pair));
+        try {
+            if (send(LIKE, "PUT", likePath(pair), intendedStart)) {
+                likedPairs.add(pair);
+                likesToRemove.add(pair);
+            }
+        } finally {
+            pairsInFlight.remove(pair);
+        }
+    }
+
+    private boolean tryAcquireUnliked(long pair) {
+        if (!pairsInFlight.add(pair)) {
+            return false;
+        }
+        if (likedPairs.contains(pair)) {
+            pairsInFlight.remove(pair);
+            return false;
+        }
+        return true;
+    }
+
+    private void acquire(long pair) {
+        while (!pairsInFlight.add(pair)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private String likePath(long pair) {
+        long filmId = pair / (profile.getUsers() + 1L);
+        long userId = pair % (profile.getUsers() + 1L);
+        return "/films/" + filmId + "/like/" + userId;
+    }
+
+    private boolean send(String endpoint, String method, String path, long intendedStart) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .timeout(REQUEST_TIMEOUT)
+                .build();
+        boolean success;
+        try {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            success = response.statusCode() / 100 == 2;
+        } catch (Exception e) {
+            log.warn("Запрос {} {} завершился ошибкой: {}", method, path, e.getMessage());
+            success = false;
+        }
+        long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedStart);
+        recorders.get(endpoint).recordValue(Math.min(latencyMicros, HIGHEST_TRACKABLE_MICROS));
+        if (!success) {
+            errors.get(endpoint).incrementAndGet();
+        }
+        return success;
+    }
+
+    public record EndpointResult(String endpoint, Histogram histogram, long errors) {
+
+        public long count() {
+            return histogram.getTotalCount();
+        }
+
+        public long percentileMicros(double percentile) {
+            return histogram.getValueAtPercentile(percentile);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.dal.EntityCache;
+import ru.yandex.practicum.filmorate.dal.IdFilter;
+import ru.yandex.practicum.filmorate.dal.SlowQueryLog;
+import ru.yandex.practicum.filmorate.dal.dictionary.Dictionaries;
+import ru.yandex.practicum.filmorate.dto.cache.CacheStatsResponse;
+import ru.yandex.practicum.filmorate.dto.filter.IdFilterStatsResponse;
+import ru.yandex.practicum.filmorate.dto.query.SlowQueryResponse;
+import ru.yandex.practicum.filmorate.mapper.CacheStatsMapper;
+import ru.yandex.practicum.filmorate.mapper.IdFilterStatsMapper;
+import ru.yandex.practicum.filmorate.mapper.SlowQueryMapper;
+import java.util.List;
+
+@Slf4j
+@RestController
+@RequestMapping("/admin")
+@AllArgsConstructor
+public class AdminController {
+
+    private final Dictionaries dictionaries;
+    private final List<EntityCache<?>> entityCaches;
+    private final List<IdFilter> idFilters;
+    private final SlowQueryLog slowQueryLog;
+
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @PostMapping("/dictionaries/refresh")
+    public void refreshDictionaries() {
+        log.info("Поступил запрос POST на перезагрузку справочников жанров и рейтингов");
+        dictionaries.refresh();
+    }
+
+    @ResponseStatus(HttpStatus.OK)
+    @GetMapping("/caches")
+    public List<CacheStatsResponse> getCacheStats() {
+        log.info("Поступил запрос GET на получение статистики кэшей");
+        return entityCaches.stream()
+                .map(CacheStatsMapper::mapToCacheStatsResponse)
+                .toList();
+    }
+
+    @ResponseStatus(HttpStatus.OK)
+    @GetMapping("/id-filters")
+    public List<IdFilterStatsResponse> getIdFilterStats() {
+        log.info("Поступил запрос GET на получение статистики фильтров id");
+        return idFilters.stream()
+                .map(IdFilterStatsMapper::mapToIdFilterStatsResponse)
+                .toList();
+    }
+
+    @ResponseStatus(HttpStatus.OK)
+    @GetMapping("/slow-queries")
+    public List<SlowQueryResponse> getSlowQueries() {
+        log.info("Поступил запрос GET на получение журнала медленных запросов");
+        return slowQueryLog.getRecords().reversed().stream()
+                .map(SlowQueryMapper::mapToSlowQueryResponse)
+                .toList();
+    }
+}
@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+import java.time.Duration;
+import java.util.function.Supplier;
+
+// Условные GET-запросы: ETag вычисляется по версиям в памяти, поэтому при совпадении If-None-Match
+// ответ 304 отдаётся без обращения к хранилищу
+@Component
+public class ConditionalResponses {
+
+    private final CacheControl cacheControl;
+
+    public ConditionalResponses(@Value("${filmorate.http-cache.max-age:PT0S}") Duration maxAge) {
+        this.cacheControl = maxAge.isZero()
+                ? CacheControl.noCache()
+                : CacheControl.maxAge(maxAge).mustRevalidate();
+    }
+
+    public <T> ResponseEntity<T> respond(WebRequest request, String eTag, Supplier<T> body) {
+        if (matches(request.getHeaderValues(HttpHeaders.IF_NONE_MATCH), eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(eTag)
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(cacheControl)
+                .body(body.get());
+    }
+
+    // WebRequest.checkNotModified не подходит: он выставляет ETag в ответ сразу, и тот попадал бы
+    // в ответы об ошибках. Для If-None-Match допускается слабое сравнение, поэтому префикс W/ отбрасывается
+    private static boolean matches(String[] ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String header : ifNoneMatch) {
+            for (String candidate : header.split(",")) {
+                candidate = candidate.trim();
+                if (candidate.startsWith("W/")) {
+                    candidate = candidate.substring(2);
+                }
+                if (candidate.equals(eTag)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
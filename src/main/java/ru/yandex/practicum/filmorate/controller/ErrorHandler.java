@@ -1,17 +1,24 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ServiceUnavailableException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import java.util.Map;
 
 @RestControllerAdvice
 @Slf4j
 public class ErrorHandler {
 
+    private static final Map<String, String> UNIQUE_INDEX_MESSAGES = Map.of(
+            "USER_EMAIL_UINDEX", "Этот имейл уже используется",
+            "USER_LOGIN_UINDEX", "Этот логин уже используется");
+
     @ExceptionHandler
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ErrorResponse handleValidationException(ValidationException e) {
@@ -19,6 +26,20 @@ public class ErrorHandler {
         return new ErrorResponse(e.getMessage());
     }
 
+    // Нарушение уникального индекса — тот же ответ, что и при проверке до записи
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponse handleDuplicateKeyException(DuplicateKeyException e) {
+        String cause = String.valueOf(e.getMostSpecificCause().getMessage()).toUpperCase();
+        String message = UNIQUE_INDEX_MESSAGES.entrySet().stream()
+                .filter(index -> cause.contains(index.getKey()))
+                .map(Map.Entry::getValue)
+                .findFirst()
+                .orElse("Такая запись уже существует");
+        log.error("400, {}", message);
+        return new ErrorResponse(message);
+    }
+
     @ExceptionHandler
     @ResponseStatus(HttpStatus.NOT_FOUND)
     public ErrorResponse handleNotFoundException(NotFoundException e) {
@@ -26,6 +47,13 @@ public class ErrorHandler {
         return new ErrorResponse(e.getMessage());
     }
 
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ErrorResponse handleServiceUnavailableException(ServiceUnavailableException e) {
+        log.error("503, {}", e.getMessage());
+        return new ErrorResponse(e.getMessage());
+    }
+
     @ExceptionHandler
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ErrorResponse handleThrowable(Throwable e) {
@@ -5,11 +5,20 @@ import lombok.AllArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.dal.EntityVersions;
+import ru.yandex.practicum.filmorate.dto.film.FilmBulkResponse;
 import ru.yandex.practicum.filmorate.dto.film.FilmResponse;
 import ru.yandex.practicum.filmorate.dto.film.NewFilmRequest;
 import ru.yandex.practicum.filmorate.dto.film.UpdateFilmRequest;
+import ru.yandex.practicum.filmorate.dto.page.PageResponse;
+import ru.yandex.practicum.filmorate.service.FilmBulkService;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -20,6 +29,10 @@ import java.util.List;
 public class FilmController {
 
     private final FilmService filmService;
+    private final FilmBulkService filmBulkService;
+    private final NdjsonStreamer ndjsonStreamer;
+    private final EntityVersions versions;
+    private final ConditionalResponses conditionalResponses;
 
     @GetMapping
     public List<FilmResponse> getAllFilms() {
@@ -27,6 +40,19 @@ public class FilmController {
         return filmService.getAllFilms();
     }
 
+    @GetMapping(params = "limit")
+    public PageResponse<FilmResponse> getFilmsPage(@RequestParam(required = false) String after,
+                                                   @RequestParam int limit) {
+        log.info("Поступил запрос GET на получение страницы фильмов после курсора {} размером {}", after, limit);
+        return filmService.getFilmsPage(after, limit);
+    }
+
+    @GetMapping(produces = NdjsonStreamer.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportFilms() {
+        log.info("Поступил запрос GET на выгрузку всех фильмов в формате NDJSON");
+        return ndjsonStreamer.<FilmResponse>stream(filmService::exportFilms);
+    }
+
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public FilmResponse addFilm(@RequestBody NewFilmRequest film) {
@@ -34,6 +60,12 @@ public class FilmController {
         return filmService.addFilm(film);
     }
 
+    @PostMapping("/bulk")
+    public FilmBulkResponse addFilms(InputStream body) throws IOException {
+        log.info("Получен запрос POST на пакетную загрузку фильмов");
+        return filmBulkService.addFilms(body);
+    }
+
     @PutMapping
     public FilmResponse updateFilm(@RequestBody UpdateFilmRequest request) {
         log.info("Получен запрос PUT на обновление фильма {}", request);
@@ -47,9 +79,10 @@ public class FilmController {
     }
 
     @GetMapping("/{filmId}")
-    public FilmResponse getFilmById(@PathVariable("filmId") long filmId) {
+    public ResponseEntity<FilmResponse> getFilmById(@PathVariable("filmId") long filmId, WebRequest request) {
         log.info("Поступил запрос GET на получение данных о фильме с id = {}", filmId);
-        return filmService.findFilmById(filmId);
+        return conditionalResponses.respond(request, versions.filmTag(filmId),
+                () -> filmService.findFilmById(filmId));
     }
 
     @PutMapping("/{id}/like/{userId}")
@@ -69,8 +102,28 @@ public class FilmController {
     }
 
     @GetMapping("/popular")
-    public List<FilmResponse> getPopularFilms(@RequestParam(defaultValue = "10") int count) {
-        log.info("Поступил запрос GET на получение {} наиболее популярных фильмов по количеству лайков", count);
-        return filmService.getPopularFilms(count);
+    public ResponseEntity<List<FilmResponse>> getPopularFilms(@RequestParam(defaultValue = "10") int count,
+                                                              @RequestParam(required = false) Integer genreId,
+                                                              @RequestParam(required = false) Integer mpaId,
+                                                              @RequestParam(required = false) Integer year,
+                                                              WebRequest request) {
+        log.info("Поступил запрос GET на получение {} наиболее популярных фильмов по количеству лайков"
+                + " (жанр: {}, рейтинг MPA: {}, год: {})", count, genreId, mpaId, year);
+        return conditionalResponses.respond(request, versions.catalogTag(),
+                () -> filmService.getPopularFilms(count, genreId, mpaId, year));
+    }
+
+    @GetMapping("/trending")
+    public List<FilmResponse> getTrendingFilms(@RequestParam(defaultValue = "day") String period,
+                                               @RequestParam(defaultValue = "10") int count) {
+        log.info("Поступил запрос GET на получение {} фильмов, набирающих лайки за период {}", count, period);
+        return filmService.getTrendingFilms(period, count);
+    }
+
+    @GetMapping("/search")
+    public List<FilmResponse> searchFilms(@RequestParam(defaultValue = "") String q,
+                                          @RequestParam(defaultValue = "10") int count) {
+        log.info("Поступил запрос GET на поиск фильмов по запросу '{}'", q);
+        return filmService.searchFilms(q, count);
     }
 }
\ No newline at end of file
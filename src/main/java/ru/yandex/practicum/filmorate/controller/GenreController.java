@@ -1,8 +1,10 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import lombok.AllArgsConstructor;
-import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ru.yandex.practicum.filmorate.dal.EntityVersions;
 import ru.yandex.practicum.filmorate.dto.genre.GenreResponse;
 import ru.yandex.practicum.filmorate.service.GenreService;
 import java.util.List;
@@ -13,16 +15,16 @@ import java.util.List;
 public class GenreController {
 
     private final GenreService genreService;
+    private final EntityVersions versions;
+    private final ConditionalResponses conditionalResponses;
 
-    @ResponseStatus(HttpStatus.OK)
     @GetMapping
-    public List<GenreResponse> findAll() {
-        return genreService.findAll();
+    public ResponseEntity<List<GenreResponse>> findAll(WebRequest request) {
+        return conditionalResponses.respond(request, versions.dictionaryTag(), genreService::findAll);
     }
 
-    @ResponseStatus(HttpStatus.OK)
     @GetMapping("/{id}")
-    public GenreResponse getGenreById(@PathVariable("id") int id) {
-        return genreService.getById(id);
+    public ResponseEntity<GenreResponse> getGenreById(@PathVariable("id") int id, WebRequest request) {
+        return conditionalResponses.respond(request, versions.dictionaryTag(), () -> genreService.getById(id));
     }
 }
\ No newline at end of file
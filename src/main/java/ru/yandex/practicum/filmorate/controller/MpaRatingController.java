@@ -1,8 +1,10 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import lombok.AllArgsConstructor;
-import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ru.yandex.practicum.filmorate.dal.EntityVersions;
 import ru.yandex.practicum.filmorate.dto.mpa.MpaRatingResponse;
 import ru.yandex.practicum.filmorate.service.MpaRatingService;
 import java.util.List;
@@ -13,16 +15,16 @@ import java.util.List;
 public class MpaRatingController {
 
     private final MpaRatingService mpaRatingService;
+    private final EntityVersions versions;
+    private final ConditionalResponses conditionalResponses;
 
-    @ResponseStatus(HttpStatus.OK)
     @GetMapping
-    public List<MpaRatingResponse> findAll() {
-        return mpaRatingService.findAll();
+    public ResponseEntity<List<MpaRatingResponse>> findAll(WebRequest request) {
+        return conditionalResponses.respond(request, versions.dictionaryTag(), mpaRatingService::findAll);
     }
 
-    @ResponseStatus(HttpStatus.OK)
     @GetMapping("/{id}")
-    public MpaRatingResponse getGenreById(@PathVariable("id") int id) {
-        return mpaRatingService.getById(id);
+    public ResponseEntity<MpaRatingResponse> getGenreById(@PathVariable("id") int id, WebRequest request) {
+        return conditionalResponses.respond(request, versions.dictionaryTag(), () -> mpaRatingService.getById(id));
     }
 }
\ No newline at end of file
@@ -5,10 +5,18 @@ import lombok.AllArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.dal.EntityVersions;
+import ru.yandex.practicum.filmorate.dto.film.FilmResponse;
+import ru.yandex.practicum.filmorate.dto.page.PageResponse;
+import ru.yandex.practicum.filmorate.dto.user.FriendSuggestionResponse;
 import ru.yandex.practicum.filmorate.dto.user.NewUserRequest;
 import ru.yandex.practicum.filmorate.dto.user.UpdateUserRequest;
 import ru.yandex.practicum.filmorate.dto.user.UserResponse;
+import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
 import java.util.List;
 
@@ -20,6 +28,10 @@ import java.util.List;
 public class UserController {
 
     private final UserService userService;
+    private final FilmService filmService;
+    private final NdjsonStreamer ndjsonStreamer;
+    private final EntityVersions versions;
+    private final ConditionalResponses conditionalResponses;
 
     @GetMapping
     public List<UserResponse> getAllUsers() {
@@ -27,6 +39,19 @@ public class UserController {
         return userService.getAllUsers();
     }
 
+    @GetMapping(params = "limit")
+    public PageResponse<UserResponse> getUsersPage(@RequestParam(required = false) String after,
+                                                   @RequestParam int limit) {
+        log.info("Поступил запрос GET на получение страницы пользователей после курсора {} размером {}", after, limit);
+        return userService.getUsersPage(after, limit);
+    }
+
+    @GetMapping(produces = NdjsonStreamer.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        log.info("Поступил запрос GET на выгрузку всех пользователей в формате NDJSON");
+        return ndjsonStreamer.<UserResponse>stream(userService::exportUsers);
+    }
+
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public UserResponse createUser(@RequestBody NewUserRequest user) {
@@ -47,9 +72,9 @@ public class UserController {
     }
 
     @GetMapping("/{id}")
-    public UserResponse getUserById(@PathVariable("id") long id) {
+    public ResponseEntity<UserResponse> getUserById(@PathVariable("id") long id, WebRequest request) {
         log.info("Поступил запрос GET на получение данных о пользователе с id = {}", id);
-        return userService.getUserById(id);
+        return conditionalResponses.respond(request, versions.userTag(id), () -> userService.getUserById(id));
     }
 
     @PutMapping("/{id}/friends/{friendId}")
@@ -74,6 +99,15 @@ public class UserController {
         return userService.getAllFriends(id);
     }
 
+    @GetMapping(value = "/{id}/friends", params = "limit")
+    public PageResponse<UserResponse> getFriendsPage(@PathVariable("id") long id,
+                                                     @RequestParam(required = false) String after,
+                                                     @RequestParam int limit) {
+        log.info("Поступил запрос GET на получение страницы друзей пользователя {} после курсора {} размером {}",
+                id, after, limit);
+        return userService.getFriendsPage(id, after, limit);
+    }
+
     @GetMapping("/{id}/friends/common/{otherId}")
     public List<UserResponse> getCommonFriends(@PathVariable("id") long id,
                                                @PathVariable("otherId") long otherId) {
@@ -81,4 +115,18 @@ public class UserController {
                 id, otherId);
         return userService.getCommonFriends(id, otherId);
     }
+
+    @GetMapping("/{id}/friends/suggestions")
+    public List<FriendSuggestionResponse> getFriendSuggestions(@PathVariable("id") long id,
+                                                               @RequestParam(defaultValue = "10") int count) {
+        log.info("Поступил запрос GET на получение {} рекомендаций друзей для пользователя c id = {}", count, id);
+        return userService.getFriendSuggestions(id, count);
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public List<FilmResponse> getRecommendedFilms(@PathVariable("id") long id,
+                                                  @RequestParam(defaultValue = "10") int count) {
+        log.info("Поступил запрос GET на получение {} рекомендованных фильмов для пользователя c id = {}", count, id);
+        return filmService.getRecommendedFilms(id, count);
+    }
 }
\ No newline at end of file
@@ -1,44 +1,135 @@
 package ru.yandex.practicum.filmorate.dal;
 
 import ru.yandex.practicum.filmorate.exception.InternalServerException;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
 
-@RequiredArgsConstructor
 public class BaseDbStorage<T> {
 
+    // Идентификаторы передаются одним параметром-массивом, поэтому текст запроса не зависит от их числа
+    private static final int MAX_IDS_PER_QUERY = 1000;
+
     protected final JdbcTemplate jdbc;
     protected final RowMapper<T> mapper;
+    private final Map<String, String> queryNames;
+    private final String unnamedQuery;
+    private QueryMetrics queryMetrics = QueryMetrics.NOOP;
+    private SlowQueryLog slowQueryLog = SlowQueryLog.DISABLED;
+
+    public BaseDbStorage(JdbcTemplate jdbc, RowMapper<T> mapper) {
+        this.jdbc = jdbc;
+        this.mapper = mapper;
+        this.queryNames = QueryMetrics.queryNames(getClass());
+        this.unnamedQuery = getClass().getSimpleName() + ".UNNAMED_QUERY";
+    }
+
+    @Autowired
+    public void setQueryMetrics(QueryMetrics queryMetrics) {
+        this.queryMetrics = queryMetrics;
+    }
+
+    @Autowired
+    public void setSlowQueryLog(SlowQueryLog slowQueryLog) {
+        this.slowQueryLog = slowQueryLog;
+    }
 
     protected Optional<T> findOne(String query, Object... params) {
-        try {
-            T result = jdbc.queryForObject(query, mapper, params);
-            return Optional.ofNullable(result);
-        } catch (EmptyResultDataAccessException ignored) {
-            return Optional.empty();
-        }
+        return measure(query, params, result -> result.isPresent() ? 1 : 0, () -> {
+            try {
+                T result = jdbc.queryForObject(query, mapper, params);
+                return Optional.ofNullable(result);
+            } catch (EmptyResultDataAccessException ignored) {
+                return Optional.empty();
+            }
+        });
     }
 
     protected List<T> findMany(String query, Object... params) {
-        return jdbc.query(query, mapper, params);
+        return findMany(query, mapper, params);
+    }
+
+    protected <R> List<R> findMany(String query, RowMapper<R> rowMapper, Object... params) {
+        return measure(query, params, List::size, () -> jdbc.query(query, rowMapper, params));
+    }
+
+    protected <R> List<R> findColumn(String query, Class<R> type, Object... params) {
+        return measure(query, params, List::size, () -> jdbc.queryForList(query, type, params));
+    }
+
+    // H2 без ленивого выполнения вычисляет весь результат до выдачи первой строки, а fetch size
+    // во встроенном режиме не учитывается. Лениво строки отдаются по мере чтения, только если порядок
+    // ORDER BY даёт индекс, поэтому запросы выгрузки сортируются по первичному ключу
+    protected void stream(String query, int fetchSize, RowCallbackHandler handler, Object... params) {
+        int[] rows = new int[1];
+        // Время выгрузки включает обработку строк получателем, поэтому она не попадает в журнал медленных запросов
+        measure(query, params, false, ignored -> rows[0], () -> jdbc.execute((ConnectionCallback<Void>) connection -> {
+            setLazyQueryExecution(connection, true);
+            try (PreparedStatement ps = connection.prepareStatement(query,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(fetchSize);
+                for (int i = 0; i < params.length; i++) {
+                    ps.setObject(i + 1, params[i]);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        rows[0]++;
+                        handler.processRow(rs);
+                    }
+                }
+            } finally {
+                setLazyQueryExecution(connection, false);
+            }
+            return null;
+        }));
+    }
+
+    private static void setLazyQueryExecution(Connection connection, boolean lazy) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET LAZY_QUERY_EXECUTION " + lazy);
+        }
+    }
+
+    protected <R> List<R> findByIds(String query, List<Long> ids, RowMapper<R> rowMapper) {
+        List<R> result = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += MAX_IDS_PER_QUERY) {
+            Long[] chunk = ids.subList(from, Math.min(ids.size(), from + MAX_IDS_PER_QUERY)).toArray(new Long[0]);
+            result.addAll(findMany(query, rowMapper, (Object) chunk));
+        }
+        return result;
+    }
+
+    protected List<T> findByIds(String query, List<Long> ids) {
+        return findByIds(query, ids, mapper);
     }
 
     protected long insert(String query, Object... params) {
         GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
-        jdbc.update(connection -> {
+        measure(query, params, rows -> rows, () -> jdbc.update(connection -> {
             PreparedStatement ps = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
             for (int i = 0; i < params.length; i++) {
                 ps.setObject(i + 1, params[i]);
             }
             return ps;
-        }, keyHolder);
+        }, keyHolder));
 
         Long id = keyHolder.getKeyAs(Long.class);
         if (id != null) {
@@ -48,15 +139,94 @@ public class BaseDbStorage<T> {
         }
     }
 
+    protected List<Long> batchInsert(String query, List<Object[]> rows) {
+        GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+        measure(query, null, BaseDbStorage::countRows, () -> jdbc.batchUpdate(
+                connection -> connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Object[] params = rows.get(i);
+                        for (int j = 0; j < params.length; j++) {
+                            ps.setObject(j + 1, params[j]);
+                        }
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return rows.size();
+                    }
+                }, keyHolder));
+
+        List<Long> ids = keyHolder.getKeyList().stream()
+                .map(keys -> ((Number) keys.values().iterator().next()).longValue())
+                .toList();
+        if (ids.size() != rows.size()) {
+            throw new InternalServerException("Не удалось сохранить данные");
+        }
+        return ids;
+    }
+
+    // Весь набор параметров отправляется одним пакетом
+    protected <E> int[][] batchUpdate(String query, Collection<E> items, ParameterizedPreparedStatementSetter<E> setter) {
+        return measure(query, null, BaseDbStorage::countRows,
+                () -> jdbc.batchUpdate(query, items, Math.max(1, items.size()), setter));
+    }
+
     protected boolean delete(String query, Object... params) {
-        int rowsDeleted = jdbc.update(query, params);
+        int rowsDeleted = execute(query, params);
         return rowsDeleted > 0;
     }
 
     protected void update(String query, Object... params) {
-        int rowsUpdated = jdbc.update(query, params);
+        int rowsUpdated = execute(query, params);
         if (rowsUpdated == 0) {
             throw new InternalServerException("Нe удалось обновить данные");
         }
     }
-}
\ No newline at end of file
+
+    protected int execute(String query, Object... params) {
+        return measure(query, params, rows -> rows, () -> jdbc.update(query, params));
+    }
+
+    private <R> R measure(String query, Object[] params, ToIntFunction<R> rowCounter, Supplier<R> call) {
+        return measure(query, params, true, rowCounter, call);
+    }
+
+    // params == null для пакетных запросов
+    private <R> R measure(String query, Object[] params, boolean logIfSlow, ToIntFunction<R> rowCounter,
+                          Supplier<R> call) {
+        String queryName = queryNames.getOrDefault(query, unnamedQuery);
+        long start = System.nanoTime();
+        R result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            queryMetrics.recordError(queryName, System.nanoTime() - start, e);
+            throw e;
+        }
+        long duration = System.nanoTime() - start;
+        int rows = rowCounter.applyAsInt(result);
+        queryMetrics.recordSuccess(queryName, duration, rows);
+        if (logIfSlow) {
+            slowQueryLog.record(queryName, query, params, duration, rows);
+        }
+        return result;
+    }
+
+    private static int countRows(int[] updateCounts) {
+        int rows = 0;
+        for (int updated : updateCounts) {
+            rows += Math.max(updated, 0);
+        }
+        return rows;
+    }
+
+    private static int countRows(int[][] updateCounts) {
+        int rows = 0;
+        for (int[] batch : updateCounts) {
+            rows += countRows(batch);
+        }
+        return rows;
+    }
+}
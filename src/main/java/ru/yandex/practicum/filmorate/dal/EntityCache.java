@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.LongFunction;
+import java.util.function.UnaryOperator;
+
+public class EntityCache<V> {
+
+    private final String name;
+    private final Cache<Long, V> cache;
+    private final UnaryOperator<V> copier;
+
+    public EntityCache(String name, long maximumSize, Duration expireAfterWrite, UnaryOperator<V> copier) {
+        this.name = name;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        this.copier = copier;
+    }
+
+    // Внутри транзакции кэш не используется: она может видеть собственные незафиксированные изменения.
+    // Наружу отдаются копии, чтобы изменения объекта вызывающим кодом не попадали в кэш
+    public Optional<V> get(long id, LongFunction<Optional<V>> loader) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return loader.apply(id);
+        }
+        return Optional.ofNullable(cache.get(id, key -> loader.apply(key).orElse(null)))
+                .map(copier);
+    }
+
+    // Повторная инвалидация после завершения внешней транзакции убирает значения,
+    // которые могли быть загружены до фиксации изменений
+    public void invalidate(long id) {
+        cache.invalidate(id);
+        IndexUpdates.afterCompletion(() -> cache.invalidate(id));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+        IndexUpdates.afterCompletion(cache::invalidateAll);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long estimatedSize() {
+        return cache.estimatedSize();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
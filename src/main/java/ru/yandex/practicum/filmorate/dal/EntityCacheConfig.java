@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import java.time.Duration;
+import java.util.ArrayList;
+
+@Configuration
+public class EntityCacheConfig {
+
+    @Bean
+    public EntityCache<Film> filmCache(@Value("${filmorate.cache.films.max-size:10000}") long maximumSize,
+                                       @Value("${filmorate.cache.ttl:PT10M}") Duration ttl) {
+        return new EntityCache<>("films", maximumSize, ttl, film -> film.toBuilder()
+                .genres(film.getGenres() == null ? null : new ArrayList<>(film.getGenres()))
+                .build());
+    }
+
+    @Bean
+    public EntityCache<User> userCache(@Value("${filmorate.cache.users.max-size:10000}") long maximumSize,
+                                       @Value("${filmorate.cache.ttl:PT10M}") Duration ttl) {
+        return new EntityCache<>("users", maximumSize, ttl, user -> user.toBuilder().build());
+    }
+}
@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import org.springframework.stereotype.Component;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Версии данных для ETag условных GET-запросов. Версия фильма или пользователя меняется вместе с его
+// представлением, версия каталога — при любом изменении фильмов и лайков, от которого зависят подборки.
+// Счётчики фильмов и пользователей разложены по STRIPES ячейкам по id: совпадение ячеек у разных id
+// даёт лишний полный ответ вместо 304, но не устаревший ответ
+@Component
+public class EntityVersions {
+
+    private static final int STRIPES = 1 << 14;
+
+    // Счётчики живут в памяти и начинаются с нуля, поэтому ETag, выданные до перезапуска, не должны совпасть
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLongArray filmVersions = new AtomicLongArray(STRIPES);
+    private final AtomicLongArray userVersions = new AtomicLongArray(STRIPES);
+    private final AtomicLong catalogVersion = new AtomicLong();
+    private final AtomicLong dictionaryVersion = new AtomicLong();
+
+    // Повторное увеличение после завершения внешней транзакции нужно, чтобы ответ, прочитанный
+    // до фиксации изменений, не остался с новым ETag
+    public void filmChanged(long filmId) {
+        bump(filmVersions, filmId);
+        catalogChanged();
+    }
+
+    public void catalogChanged() {
+        catalogVersion.incrementAndGet();
+        IndexUpdates.afterCompletion(catalogVersion::incrementAndGet);
+    }
+
+    public void userChanged(long userId) {
+        bump(userVersions, userId);
+    }
+
+    // Названия жанров и рейтингов входят в представление фильмов
+    public void dictionariesChanged() {
+        dictionaryVersion.incrementAndGet();
+        IndexUpdates.afterCompletion(dictionaryVersion::incrementAndGet);
+    }
+
+    public String filmTag(long filmId) {
+        return tag("f" + filmId, filmVersions.get(stripe(filmId)), dictionaryVersion.get());
+    }
+
+    public String catalogTag() {
+        return tag("c", catalogVersion.get(), dictionaryVersion.get());
+    }
+
+    public String userTag(long userId) {
+        return tag("u" + userId, userVersions.get(stripe(userId)), 0);
+    }
+
+    public String dictionaryTag() {
+        return tag("d", dictionaryVersion.get(), 0);
+    }
+
+    private void bump(AtomicLongArray versions, long id) {
+        int stripe = stripe(id);
+        versions.incrementAndGet(stripe);
+        IndexUpdates.afterCompletion(() -> versions.incrementAndGet(stripe));
+    }
+
+    private String tag(String prefix, long version, long dictionary) {
+        return "\"" + prefix + "-" + epoch + "-" + version + "-" + dictionary + "\"";
+    }
+
+    private static int stripe(long id) {
+        return (int) (id ^ (id >>> 32)) & (STRIPES - 1);
+    }
+}
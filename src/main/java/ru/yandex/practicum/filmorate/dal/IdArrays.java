@@ -0,0 +1,116 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Операции над отсортированными массивами id, которые используются индексами в памяти.
+// Массивы не изменяются: при добавлении и удалении возвращается копия
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class IdArrays {
+
+    public static final long[] EMPTY = new long[0];
+
+    // Если id уже есть в массиве, возвращается тот же массив
+    public static long[] with(long[] ids, long id) {
+        int position = Arrays.binarySearch(ids, id);
+        if (position >= 0) {
+            return ids;
+        }
+        int insertAt = -position - 1;
+        long[] updated = new long[ids.length + 1];
+        System.arraycopy(ids, 0, updated, 0, insertAt);
+        updated[insertAt] = id;
+        System.arraycopy(ids, insertAt, updated, insertAt + 1, ids.length - insertAt);
+        return updated;
+    }
+
+    // Если id в массиве нет, возвращается тот же массив
+    public static long[] without(long[] ids, long id) {
+        int position = Arrays.binarySearch(ids, id);
+        if (position < 0) {
+            return ids;
+        }
+        long[] updated = new long[ids.length - 1];
+        System.arraycopy(ids, 0, updated, 0, position);
+        System.arraycopy(ids, position + 1, updated, position, ids.length - position - 1);
+        return updated;
+    }
+
+    public static boolean contains(long[] ids, long id) {
+        return Arrays.binarySearch(ids, id) >= 0;
+    }
+
+    // Пересечение за один линейный проход
+    public static long[] intersect(long[] first, long[] second) {
+        long[] common = new long[Math.min(first.length, second.length)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                common[size++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(common, size);
+    }
+
+    // Равномерная выборка не больше limit элементов, чтобы не смещаться к маленьким id
+    public static long[] sample(long[] ids, int limit) {
+        if (ids.length <= limit) {
+            return ids;
+        }
+        long[] sampled = new long[limit];
+        for (int i = 0; i < limit; i++) {
+            sampled[i] = ids[(int) ((long) i * ids.length / limit)];
+        }
+        return sampled;
+    }
+
+    // Собирает массивы из пар (ключ, id), упорядоченных по ключу и id: массив каждого ключа
+    // набирается подряд и сразу получается отсортированным
+    public static class Builder {
+
+        private final Map<Long, long[]> arrays = new HashMap<>();
+        private long[] buffer = new long[16];
+        private int size;
+        private long key = -1;
+        private long pairs;
+
+        public void add(long key, long id) {
+            if (key != this.key) {
+                flush();
+                this.key = key;
+            }
+            if (size == buffer.length) {
+                buffer = Arrays.copyOf(buffer, size * 2);
+            }
+            buffer[size++] = id;
+            pairs++;
+        }
+
+        public Map<Long, long[]> build() {
+            flush();
+            return arrays;
+        }
+
+        public long getPairs() {
+            return pairs;
+        }
+
+        private void flush() {
+            if (size > 0) {
+                arrays.put(key, Arrays.copyOf(buffer, size));
+                size = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+// Фильтр кукушки по id существующих записей таблицы. Ответ «нет» точный, и запрос к базе
+// не нужен; ответ «возможно» бывает ложным примерно в 2 * 4 / 2^16 случаев при полной таблице.
+// В отличие от фильтра Блума, id можно удалить: удаляется его отпечаток (16 бит)
+// из одного из двух бакетов по 4 отпечатка
+@Slf4j
+public class IdFilter {
+
+    private static final int BUCKET_SIZE = 4;
+    private static final int MIN_BUCKETS = 1 << 10;
+    private static final int MAX_KICKS = 500;
+    // Таблица строится с запасом, чтобы новые id помещались без расширения
+    private static final double LOAD_HEADROOM = 1.5;
+    private static final double MAX_LOAD = 0.95;
+
+    private final String name;
+    private final JdbcTemplate jdbc;
+    private final String loadQuery;
+    private final boolean enabled;
+    private final StampedLock lock = new StampedLock();
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder definiteMisses = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    // Пока фильтр не загружен, таблиц нет и ответ на всё — «возможно». Когда в последней таблице
+    // не находится места, добавляется новая вдвое больше: перестроение по базе могло бы потерять
+    // id, вставленные ещё не зафиксированными транзакциями
+    private short[][] tables = new short[0][];
+
+    public IdFilter(String name, JdbcTemplate jdbc, String loadQuery, boolean enabled) {
+        this.name = name;
+        this.jdbc = jdbc;
+        this.loadQuery = loadQuery;
+        this.enabled = enabled;
+    }
+
+    // Вызывается при старте, до того как приложение начинает создавать записи
+    @PostConstruct
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        long[][] ids = {new long[1024]};
+        int[] count = {0};
+        jdbc.query(loadQuery, (RowCallbackHandler) rs -> {
+            if (count[0] == ids[0].length) {
+                ids[0] = Arrays.copyOf(ids[0], count[0] * 2);
+            }
+            ids[0][count[0]++] = rs.getLong(1);
+        });
+        short[] table = build(Arrays.copyOf(ids[0], count[0]));
+        long stamp = lock.writeLock();
+        try {
+            tables = new short[][]{table};
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        log.info("Фильтр id '{}' загружен, id: {}, память: {} байт", name, count[0], table.length * 2L);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // false — записи с таким id точно нет
+    public boolean mightContain(long id) {
+        if (!enabled) {
+            return true;
+        }
+        checks.increment();
+        long hash = hash(id);
+        long stamp = lock.tryOptimisticRead();
+        boolean found = contains(tables, hash);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                found = contains(tables, hash);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        if (!found) {
+            definiteMisses.increment();
+        }
+        return found;
+    }
+
+    // Фильтр ответил «возможно», а записи в базе не оказалось
+    public void recordFalsePositive() {
+        falsePositives.increment();
+    }
+
+    public void add(long id) {
+        if (!enabled) {
+            return;
+        }
+        long hash = hash(id);
+        long stamp = lock.writeLock();
+        try {
+            if (tables.length == 0 || insert(tables[tables.length - 1], hash)) {
+                return;
+            }
+            short[] last = tables[tables.length - 1];
+            short[] grown = new short[last.length * 2];
+            insert(grown, hash);
+            tables = Arrays.copyOf(tables, tables.length + 1);
+            tables[tables.length - 1] = grown;
+            log.info("Фильтр id '{}' расширен, таблиц: {}, память: {} байт", name, tables.length, memoryBytes(tables));
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Удалять можно только добавленные id, иначе пропадёт отпечаток другого id
+    public void remove(long id) {
+        if (!enabled) {
+            return;
+        }
+        long hash = hash(id);
+        long stamp = lock.writeLock();
+        try {
+            for (int i = tables.length - 1; i >= 0; i--) {
+                if (delete(tables[i], hash)) {
+                    return;
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Заполненность считается проходом по таблицам, поэтому только по запросу статистики
+    public Stats stats() {
+        long stamp = lock.readLock();
+        try {
+            long size = 0;
+            long capacity = 0;
+            double expectedFalsePositiveRate = 0;
+            for (short[] table : tables) {
+                long occupied = 0;
+                for (short slot : table) {
+                    if (slot != 0) {
+                        occupied++;
+                    }
+                }
+                size += occupied;
+                capacity += table.length;
+                expectedFalsePositiveRate += 2.0 * BUCKET_SIZE * occupied / table.length / (1 << 16);
+            }
+            long misses = definiteMisses.sum();
+            long falseHits = falsePositives.sum();
+            return new Stats(size, capacity, memoryBytes(tables), tables.length,
+                    capacity == 0 ? 0 : (double) size / capacity, expectedFalsePositiveRate,
+                    checks.sum(), misses, falseHits,
+                    misses + falseHits == 0 ? 0 : (double) falseHits / (misses + falseHits));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private static long memoryBytes(short[][] tables) {
+        long bytes = 0;
+        for (short[] table : tables) {
+            bytes += (long) table.length * Short.BYTES;
+        }
+        return bytes;
+    }
+
+    private static short[] build(long[] ids) {
+        long buckets = Long.highestOneBit(
+                (long) Math.ceil(Math.max(ids.length, 1) * LOAD_HEADROOM / (BUCKET_SIZE * MAX_LOAD)) * 2 - 1);
+        buckets = Math.max(buckets, MIN_BUCKETS);
+        while (true) {
+            short[] table = new short[Math.toIntExact(buckets * BUCKET_SIZE)];
+            boolean inserted = true;
+            for (long id : ids) {
+                if (!insert(table, hash(id))) {
+                    inserted = false;
+                    break;
+                }
+            }
+            if (inserted) {
+                return table;
+            }
+            buckets *= 2;
+        }
+    }
+
+    private static boolean contains(short[][] tables, long hash) {
+        if (tables.length == 0) {
+            return true;
+        }
+        short fingerprint = fingerprint(hash);
+        for (short[] table : tables) {
+            int mask = table.length / BUCKET_SIZE - 1;
+            int first = (int) hash & mask;
+            if (bucketIndexOf(table, first, fingerprint) >= 0
+                    || bucketIndexOf(table, alternate(first, fingerprint, mask), fingerprint) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // При неудаче таблица возвращается в исходное состояние
+    private static boolean insert(short[] table, long hash) {
+        int mask = table.length / BUCKET_SIZE - 1;
+        short fingerprint = fingerprint(hash);
+        int bucket = (int) hash & mask;
+        if (put(table, bucket, fingerprint)) {
+            return true;
+        }
+        bucket = alternate(bucket, fingerprint, mask);
+        if (put(table, bucket, fingerprint)) {
+            return true;
+        }
+        // Вытеснение: отпечаток занимает случайное место, вытесненный переезжает в свой второй бакет
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int[] kicked = new int[MAX_KICKS];
+        for (int kick = 0; kick < MAX_KICKS; kick++) {
+            int slot = bucket * BUCKET_SIZE + random.nextInt(BUCKET_SIZE);
+            kicked[kick] = slot;
+            short evicted = table[slot];
+            table[slot] = fingerprint;
+            fingerprint = evicted;
+            bucket = alternate(bucket, fingerprint, mask);
+            if (put(table, bucket, fingerprint)) {
+                return true;
+            }
+        }
+        for (int kick = MAX_KICKS - 1; kick >= 0; kick--) {
+            short placed = table[kicked[kick]];
+            table[kicked[kick]] = fingerprint;
+            fingerprint = placed;
+        }
+        return false;
+    }
+
+    private static boolean delete(short[] table, long hash) {
+        int mask = table.length / BUCKET_SIZE - 1;
+        short fingerprint = fingerprint(hash);
+        int first = (int) hash & mask;
+        int slot = bucketIndexOf(table, first, fingerprint);
+        if (slot < 0) {
+            slot = bucketIndexOf(table, alternate(first, fingerprint, mask), fingerprint);
+        }
+        if (slot < 0) {
+            return false;
+        }
+        table[slot] = 0;
+        return true;
+    }
+
+    private static boolean put(short[] table, int bucket, short fingerprint) {
+        int slot = bucketIndexOf(table, bucket, (short) 0);
+        if (slot < 0) {
+            return false;
+        }
+        table[slot] = fingerprint;
+        return true;
+    }
+
+    private static int bucketIndexOf(short[] table, int bucket, short fingerprint) {
+        int start = bucket * BUCKET_SIZE;
+        for (int slot = start; slot < start + BUCKET_SIZE; slot++) {
+            if (table[slot] == fingerprint) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    // Второй бакет вычисляется по первому и отпечатку, и наоборот, поэтому исходный id не хранится
+    private static int alternate(int bucket, short fingerprint, int mask) {
+        return (bucket ^ (int) mix(fingerprint)) & mask;
+    }
+
+    // Ноль означает пустое место
+    private static short fingerprint(long hash) {
+        short fingerprint = (short) (hash >>> 48);
+        return fingerprint == 0 ? 1 : fingerprint;
+    }
+
+    private static long hash(long id) {
+        return mix(id);
+    }
+
+    // Финальное перемешивание MurmurHash3
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    public record Stats(long size, long capacity, long memoryBytes, int tables, double loadFactor,
+                        double expectedFalsePositiveRate,
+                        long checks, long definiteMisses, long falsePositives, double falsePositiveRate) {
+    }
+}
@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@Configuration
+public class IdFilterConfig {
+
+    private static final String LOAD_USER_IDS_QUERY = "SELECT id FROM users";
+
+    private static final String LOAD_FILM_IDS_QUERY = "SELECT id FROM films";
+
+    @Bean
+    public IdFilter userIdFilter(JdbcTemplate jdbc,
+                                 @Value("${filmorate.id-filter.enabled:true}") boolean enabled) {
+        return new IdFilter("users", jdbc, LOAD_USER_IDS_QUERY, enabled);
+    }
+
+    @Bean
+    public IdFilter filmIdFilter(JdbcTemplate jdbc,
+                                 @Value("${filmorate.id-filter.enabled:true}") boolean enabled) {
+        return new IdFilter("films", jdbc, LOAD_FILM_IDS_QUERY, enabled);
+    }
+}
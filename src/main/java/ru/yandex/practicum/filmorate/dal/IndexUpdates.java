@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class IndexUpdates {
+
+    // Изменения in-memory индексов применяются сразу (чтобы их видела текущая транзакция)
+    // и откатываются, если транзакция, в которой они сделаны, не была зафиксирована
+    public static void apply(Runnable change, Runnable rollback) {
+        change.run();
+        onRollback(rollback);
+    }
+
+    public static void afterCompletion(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.run();
+                }
+            });
+        }
+    }
+
+    public static void onRollback(Runnable rollback) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        rollback.run();
+                    }
+                }
+            });
+        }
+    }
+}
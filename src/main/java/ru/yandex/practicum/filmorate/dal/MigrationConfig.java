@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.api.output.MigrateOutput;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Configuration
+public class MigrationConfig {
+
+    // Flyway применяет только ещё не выполненные миграции; при старте в журнал выводится время каждой из них
+    @Bean
+    public FlywayMigrationStrategy migrationStrategy() {
+        return flyway -> {
+            long start = System.nanoTime();
+            MigrateResult result = flyway.migrate();
+            long totalMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            if (result.migrationsExecuted == 0) {
+                log.info("Схема базы данных актуальна, версия {}, проверка заняла {} мс",
+                        result.targetSchemaVersion == null ? result.initialSchemaVersion : result.targetSchemaVersion,
+                        totalMillis);
+                return;
+            }
+            for (MigrateOutput migration : result.migrations) {
+                log.info("Миграция {} «{}» выполнена за {} мс",
+                        migration.version, migration.description, migration.executionTime);
+            }
+            log.info("Применено миграций: {}, версия схемы {} -> {}, всего {} мс",
+                    result.migrationsExecuted, result.initialSchemaVersion, result.targetSchemaVersion, totalMillis);
+        };
+    }
+}
@@ -0,0 +1,108 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Метрики запросов BaseDbStorage. Запрос помечается именем константы, в которой объявлен его текст
+// (например, FilmDbStorage.GET_TOP_POPULAR_FILMS_QUERY), поэтому число тегов ограничено числом констант
+@Component
+public class QueryMetrics {
+
+    public static final QueryMetrics NOOP = new QueryMetrics((MeterRegistry) null);
+
+    static final String QUERY_TIMER = "filmorate.db.query";
+    static final String QUERY_ROWS = "filmorate.db.query.rows";
+    static final String QUERY_ERRORS = "filmorate.db.query.errors";
+
+    private final MeterRegistry registry;
+    private final Map<String, Meters> meters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public QueryMetrics(ObjectProvider<MeterRegistry> registry) {
+        this(registry.getIfAvailable());
+    }
+
+    private QueryMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void recordSuccess(String queryName, long durationNanos, int rows) {
+        if (registry == null) {
+            return;
+        }
+        Meters queryMeters = meters(queryName);
+        queryMeters.success().record(durationNanos, TimeUnit.NANOSECONDS);
+        queryMeters.rows().record(rows);
+    }
+
+    public void recordError(String queryName, long durationNanos, Throwable error) {
+        if (registry == null) {
+            return;
+        }
+        meters(queryName).error().record(durationNanos, TimeUnit.NANOSECONDS);
+        Counter.builder(QUERY_ERRORS)
+                .description("Число запросов, завершившихся исключением")
+                .tag("query", queryName)
+                .tag("exception", error.getClass().getSimpleName())
+                .register(registry)
+                .increment();
+    }
+
+    private Meters meters(String queryName) {
+        return meters.computeIfAbsent(queryName, name -> new Meters(
+                timer(name, "success"),
+                timer(name, "error"),
+                DistributionSummary.builder(QUERY_ROWS)
+                        .description("Число строк, прочитанных или изменённых запросом")
+                        .baseUnit("rows")
+                        .tag("query", name)
+                        .publishPercentileHistogram()
+                        .register(registry)));
+    }
+
+    private Timer timer(String queryName, String outcome) {
+        return Timer.builder(QUERY_TIMER)
+                .description("Время выполнения запроса к базе данных")
+                .tag("query", queryName)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .register(registry);
+    }
+
+    // Имена запросов класса хранилища: текст запроса -> "Класс.ИМЯ_QUERY" для всех строковых
+    // констант *_QUERY самого класса и его предков
+    public static Map<String, String> queryNames(Class<?> storageClass) {
+        Map<String, String> names = new HashMap<>();
+        for (Class<?> type = storageClass; type != null && type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (!Modifier.isStatic(modifiers) || !Modifier.isFinal(modifiers)
+                        || field.getType() != String.class || !field.getName().endsWith("_QUERY")) {
+                    continue;
+                }
+                try {
+                    field.setAccessible(true);
+                    names.putIfAbsent((String) field.get(null), type.getSimpleName() + "." + field.getName());
+                } catch (ReflectiveOperationException | RuntimeException e) {
+                    throw new IllegalStateException("Не удалось прочитать текст запроса " + field, e);
+                }
+            }
+        }
+        return names;
+    }
+
+    private record Meters(Timer success, Timer error, DistributionSummary rows) {
+    }
+}
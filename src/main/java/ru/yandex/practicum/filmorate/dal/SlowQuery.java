@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class SlowQuery {
+
+    Instant timestamp;
+    String queryName;
+    String sql;
+    List<String> parameterShapes;
+    long durationMicros;
+    int rows;
+    // План заполняется асинхронно, после того как запись уже попала в журнал
+    volatile String plan;
+    volatile String planStatus;
+}
@@ -0,0 +1,181 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Журнал медленных запросов: последние capacity записей в кольцевом буфере.
+// План запроса снимается в отдельном потоке с ограниченной очередью и не чаще
+// одного раза за explain-interval для каждого запроса, поэтому не замедляет исходный запрос
+@Slf4j
+@Component
+public class SlowQueryLog {
+
+    public static final SlowQueryLog DISABLED = new SlowQueryLog();
+
+    static final String PLAN_CAPTURED = "CAPTURED";
+    static final String PLAN_PENDING = "PENDING";
+    static final String PLAN_RATE_LIMITED = "RATE_LIMITED";
+    static final String PLAN_DROPPED = "DROPPED";
+    static final String PLAN_UNAVAILABLE = "UNAVAILABLE";
+    static final String PLAN_FAILED = "FAILED";
+
+    private final JdbcTemplate jdbc;
+    private final long thresholdNanos;
+    private final int capacity;
+    private final long explainIntervalNanos;
+    private final Deque<SlowQuery> records;
+    private final Map<String, Long> lastExplainNanos = new ConcurrentHashMap<>();
+    private final AtomicLong droppedExplains = new AtomicLong();
+    private final ThreadPoolExecutor explainExecutor;
+
+    @Autowired
+    public SlowQueryLog(JdbcTemplate jdbc,
+                        @Value("${filmorate.slow-query.threshold:PT0.1S}") Duration threshold,
+                        @Value("${filmorate.slow-query.capacity:100}") int capacity,
+                        @Value("${filmorate.slow-query.explain-interval:PT1M}") Duration explainInterval,
+                        @Value("${filmorate.slow-query.explain-queue-size:16}") int explainQueueSize) {
+        this.jdbc = jdbc;
+        this.thresholdNanos = threshold.toNanos();
+        this.capacity = capacity;
+        this.explainIntervalNanos = explainInterval.toNanos();
+        this.records = new ArrayDeque<>(capacity);
+        this.explainExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(explainQueueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "slow-query-explain");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    private SlowQueryLog() {
+        this.jdbc = null;
+        this.thresholdNanos = Long.MAX_VALUE;
+        this.capacity = 0;
+        this.explainIntervalNanos = 0;
+        this.records = new ArrayDeque<>();
+        this.explainExecutor = null;
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (explainExecutor != null) {
+            explainExecutor.shutdownNow();
+        }
+    }
+
+    private boolean isSlow(long durationNanos) {
+        return durationNanos >= thresholdNanos;
+    }
+
+    // params == null означает пакетный запрос
+    public void record(String queryName, String sql, Object[] params, long durationNanos, int rows) {
+        if (!isSlow(durationNanos)) {
+            return;
+        }
+        SlowQuery slowQuery = SlowQuery.builder()
+                .timestamp(Instant.now())
+                .queryName(queryName)
+                .sql(sql)
+                .parameterShapes(params == null
+                        ? List.of("batch")
+                        : Arrays.stream(params).map(SlowQueryLog::describe).toList())
+                .durationMicros(TimeUnit.NANOSECONDS.toMicros(durationNanos))
+                .rows(rows)
+                .build();
+        log.warn("Медленный запрос {}: {} мс, строк {}, параметры {}", queryName,
+                TimeUnit.NANOSECONDS.toMillis(durationNanos), rows, slowQuery.getParameterShapes());
+        synchronized (records) {
+            if (records.size() == capacity) {
+                records.removeFirst();
+            }
+            records.addLast(slowQuery);
+        }
+        requestPlan(slowQuery, params);
+    }
+
+    public List<SlowQuery> getRecords() {
+        synchronized (records) {
+            return new ArrayList<>(records);
+        }
+    }
+
+    private void requestPlan(SlowQuery slowQuery, Object[] params) {
+        // Пакетные запросы выполняются с разными наборами параметров, одного плана для них нет
+        if (params == null) {
+            slowQuery.setPlanStatus(PLAN_UNAVAILABLE);
+            return;
+        }
+        long now = System.nanoTime();
+        boolean[] allowed = new boolean[1];
+        lastExplainNanos.compute(slowQuery.getQueryName(), (queryName, previous) -> {
+            if (previous != null && now - previous < explainIntervalNanos) {
+                return previous;
+            }
+            allowed[0] = true;
+            return now;
+        });
+        if (!allowed[0]) {
+            slowQuery.setPlanStatus(PLAN_RATE_LIMITED);
+            return;
+        }
+        slowQuery.setPlanStatus(PLAN_PENDING);
+        try {
+            explainExecutor.execute(() -> capturePlan(slowQuery, params));
+        } catch (RejectedExecutionException e) {
+            slowQuery.setPlanStatus(PLAN_DROPPED);
+            log.warn("Очередь снятия планов заполнена, план запроса {} не снят, всего пропущено {}",
+                    slowQuery.getQueryName(), droppedExplains.incrementAndGet());
+        }
+    }
+
+    // EXPLAIN ANALYZE выполняет запрос, поэтому для изменяющих запросов снимается только EXPLAIN
+    private void capturePlan(SlowQuery slowQuery, Object[] params) {
+        String sql = slowQuery.getSql();
+        String explain = isSelect(sql) ? "EXPLAIN ANALYZE " : "EXPLAIN ";
+        try {
+            List<String> plan = jdbc.queryForList(explain + sql, String.class, params);
+            slowQuery.setPlan(String.join(System.lineSeparator(), plan));
+            slowQuery.setPlanStatus(PLAN_CAPTURED);
+        } catch (RuntimeException e) {
+            log.warn("Не удалось получить план запроса {}: {}", slowQuery.getQueryName(), e.getMessage());
+            slowQuery.setPlanStatus(PLAN_FAILED);
+        }
+    }
+
+    private static boolean isSelect(String sql) {
+        String statement = sql.stripLeading();
+        return statement.regionMatches(true, 0, "SELECT", 0, 6) || statement.regionMatches(true, 0, "WITH", 0, 4);
+    }
+
+    // В журнал попадают только типы и размеры параметров, а не их значения
+    static String describe(Object param) {
+        if (param == null) {
+            return "null";
+        }
+        if (param instanceof Object[] array) {
+            return array.getClass().getComponentType().getSimpleName() + "[" + array.length + "]";
+        }
+        if (param instanceof CharSequence text) {
+            return "String(" + text.length() + ")";
+        }
+        return param.getClass().getSimpleName();
+    }
+}
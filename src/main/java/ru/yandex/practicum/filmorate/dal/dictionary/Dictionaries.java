@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.dal.dictionary;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dal.EntityVersions;
+import ru.yandex.practicum.filmorate.dal.genre.GenreStorage;
+import ru.yandex.practicum.filmorate.dal.mpa.MpaRatingStorage;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+
+@Slf4j
+@Component
+public class Dictionaries {
+
+    private final GenreStorage genreStorage;
+    private final MpaRatingStorage mpaRatingStorage;
+    private final EntityVersions versions;
+
+    private volatile Dictionary<Genre> genres;
+    private volatile Dictionary<MpaRating> mpaRatings;
+
+    public Dictionaries(GenreStorage genreStorage, MpaRatingStorage mpaRatingStorage, EntityVersions versions) {
+        this.genreStorage = genreStorage;
+        this.mpaRatingStorage = mpaRatingStorage;
+        this.versions = versions;
+    }
+
+    @PostConstruct
+    public void refresh() {
+        genres = Dictionary.of(genreStorage.findAll(), Genre::getId);
+        mpaRatings = Dictionary.of(mpaRatingStorage.findAll(), MpaRating::getId);
+        versions.dictionariesChanged();
+        log.info("Справочники загружены, жанров: {}, рейтингов: {}", genres.size(), mpaRatings.size());
+    }
+
+    public Dictionary<Genre> genres() {
+        return genres;
+    }
+
+    public Dictionary<MpaRating> mpaRatings() {
+        return mpaRatings;
+    }
+}
@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.dal.dictionary;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.ToIntFunction;
+
+public final class Dictionary<T> {
+
+    private final Object[] valuesById;
+    private final List<T> values;
+
+    private Dictionary(Object[] valuesById, List<T> values) {
+        this.valuesById = valuesById;
+        this.values = values;
+    }
+
+    public static <T> Dictionary<T> of(List<T> values, ToIntFunction<T> idExtractor) {
+        int maxId = values.stream().mapToInt(idExtractor).max().orElse(-1);
+        Object[] valuesById = new Object[maxId + 1];
+        for (T value : values) {
+            valuesById[idExtractor.applyAsInt(value)] = value;
+        }
+        return new Dictionary<>(valuesById, List.copyOf(values));
+    }
+
+    @SuppressWarnings("unchecked")
+    public Optional<T> get(int id) {
+        if (id < 0 || id >= valuesById.length) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable((T) valuesById[id]);
+    }
+
+    public List<T> values() {
+        return values;
+    }
+
+    public int size() {
+        return values.size();
+    }
+}
@@ -0,0 +1,168 @@
+package ru.yandex.practicum.filmorate.dal.film;
+
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.dal.EntityCache;
+import ru.yandex.practicum.filmorate.dal.EntityVersions;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.TrendingPeriod;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+@Primary
+@Repository
+public class CachingFilmStorage implements FilmStorage {
+
+    private final FilmDbStorage filmDbStorage;
+    private final EntityCache<Film> filmCache;
+    private final EntityVersions versions;
+
+    public CachingFilmStorage(FilmDbStorage filmDbStorage, EntityCache<Film> filmCache, EntityVersions versions) {
+        this.filmDbStorage = filmDbStorage;
+        this.filmCache = filmCache;
+        this.versions = versions;
+    }
+
+    @Override
+    public List<Film> getAllFilms() {
+        return filmDbStorage.getAllFilms();
+    }
+
+    @Override
+    public List<Film> getFilmsPage(long afterId, int limit) {
+        return filmDbStorage.getFilmsPage(afterId, limit);
+    }
+
+    @Override
+    public void streamAllFilms(Consumer<Film> consumer) {
+        filmDbStorage.streamAllFilms(consumer);
+    }
+
+    @Override
+    public Film addFilm(Film film) {
+        try {
+            return filmDbStorage.addFilm(film);
+        } finally {
+            versions.catalogChanged();
+        }
+    }
+
+    @Override
+    public List<Film> addFilms(List<Film> films) {
+        try {
+            return filmDbStorage.addFilms(films);
+        } finally {
+            versions.catalogChanged();
+        }
+    }
+
+    @Override
+    public Film updateFilm(Film newFilm) {
+        try {
+            return filmDbStorage.updateFilm(newFilm);
+        } finally {
+            filmCache.invalidate(newFilm.getId());
+            versions.filmChanged(newFilm.getId());
+        }
+    }
+
+    @Override
+    public void removeFilm(long filmId) {
+        try {
+            filmDbStorage.removeFilm(filmId);
+        } finally {
+            filmCache.invalidate(filmId);
+            versions.filmChanged(filmId);
+        }
+    }
+
+    @Override
+    public Optional<Film> findFilmById(long filmId) {
+        return filmCache.get(filmId, filmDbStorage::findFilmById);
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        return filmDbStorage.getPopularFilms(count);
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count, Integer genreId, Integer mpaId, Integer year) {
+        return filmDbStorage.getPopularFilms(count, genreId, mpaId, year);
+    }
+
+    @Override
+    public List<Film> getTrendingFilms(TrendingPeriod period, int count) {
+        return filmDbStorage.getTrendingFilms(period, count);
+    }
+
+    @Override
+    public List<Film> getRecommendedFilms(long userId, int count) {
+        return filmDbStorage.getRecommendedFilms(userId, count);
+    }
+
+    @Override
+    public List<Film> searchFilms(String query, int count) {
+        return filmDbStorage.searchFilms(query, count);
+    }
+
+    @Override
+    public void addGenreToFilm(Long filmId, int genreId) {
+        try {
+            filmDbStorage.addGenreToFilm(filmId, genreId);
+        } finally {
+            filmCache.invalidate(filmId);
+            versions.filmChanged(filmId);
+        }
+    }
+
+    @Override
+    public void removeGenreFromFilm(Long filmId) {
+        try {
+            filmDbStorage.removeGenreFromFilm(filmId);
+        } finally {
+            filmCache.invalidate(filmId);
+            versions.filmChanged(filmId);
+        }
+    }
+
+    @Override
+    public void updateFilmGenres(long filmId, Set<Integer> genreIds) {
+        try {
+            filmDbStorage.updateFilmGenres(filmId, genreIds);
+        } finally {
+            filmCache.invalidate(filmId);
+            versions.filmChanged(filmId);
+        }
+    }
+
+    @Override
+    public void addLikeToFilm(Long filmId, Long userId) {
+        try {
+            filmDbStorage.addLikeToFilm(filmId, userId);
+        } finally {
+            versions.catalogChanged();
+        }
+    }
+
+    @Override
+    public void removeLikeFromFilm(Long filmId, Long userId) {
+        try {
+            filmDbStorage.removeLikeFromFilm(filmId, userId);
+        } finally {
+            versions.catalogChanged();
+        }
+    }
+
+    @Override
+    public void applyLikeChanges(Collection<LikeChange> changes) {
+        try {
+            filmDbStorage.applyLikeChanges(changes);
+        } finally {
+            versions.catalogChanged();
+        }
+    }
+}
@@ -3,15 +3,24 @@ package ru.yandex.practicum.filmorate.dal.film;
 import lombok.Builder;
 import lombok.Data;
 import ru.yandex.practicum.filmorate.exception.InternalServerException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.dal.BaseDbStorage;
+import ru.yandex.practicum.filmorate.dal.IdFilter;
+import ru.yandex.practicum.filmorate.dal.IndexUpdates;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
-import java.sql.PreparedStatement;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.TrendingPeriod;
 import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
 import java.util.*;
+import java.util.function.Consumer;
 
 @Repository
 public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
@@ -22,6 +31,42 @@ public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
             LEFT JOIN mpa_rating AS mpa ON mpa.id = f.rating_id
             """;
 
+    private static final String GET_PAGE_QUERY = GET_ALL_QUERY + """
+            WHERE f.id > ?
+            ORDER BY f.id
+            LIMIT ?
+            """;
+
+    private static final String STREAM_ALL_QUERY = """
+            SELECT f.id AS film_id, f.name, f.description, f.release_date, f.duration, f.rating_id AS mpa_id, mpa.name AS mpa_name,
+            g.id AS genre_id, g.name AS genre_name
+            FROM films AS f
+            LEFT JOIN mpa_rating AS mpa ON mpa.id = f.rating_id
+            LEFT JOIN film_genres AS fg ON fg.film_id = f.id
+            LEFT JOIN genres AS g ON g.id = fg.genre_id
+            ORDER BY f.id
+            """;
+
+    private static final String FIND_BY_IDS_QUERY = """
+            SELECT f.id AS film_id, f.name, f.description, f.release_date, f.duration, f.rating_id AS mpa_id, mpa.name AS mpa_name
+            FROM TABLE(id BIGINT = ?) AS ids
+            JOIN films AS f ON f.id = ids.id
+            LEFT JOIN mpa_rating AS mpa ON mpa.id = f.rating_id
+            """;
+
+    private static final String FIND_GENRES_FOR_FILMS_QUERY = """
+            SELECT g.id AS genre_id, g.name AS genre_name, fg.film_id
+            FROM TABLE(id BIGINT = ?) AS ids
+            JOIN film_genres AS fg ON fg.film_id = ids.id
+            LEFT JOIN genres AS g ON fg.genre_id = g.id
+            """;
+
+    private static final String FIND_ALL_FILM_GENRES_QUERY = """
+            SELECT g.id AS genre_id, g.name AS genre_name, fg.film_id
+            FROM film_genres AS fg
+            LEFT JOIN genres AS g ON fg.genre_id = g.id
+            """;
+
     private static final String INSERT_QUERY = """
             INSERT INTO films(name, description, release_date, duration, rating_id)
             VALUES (?, ?, ?, ?, ?)
@@ -47,20 +92,69 @@ public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
             WHERE id = ?
             """;
 
-    private static final String GET_TOP_POPULAR_FILMS_QUERY = """
-            SELECT f.id AS film_id, f.name, f.description, f.release_date, f.duration, f.rating_id AS mpa_id, mpa.name AS mpa_name,
-            COUNT(fl.user_id <> 0) AS likes
-            FROM films AS f
-            LEFT JOIN film_likes AS fl ON fl.film_id = f.id
+    private static final String GET_TOP_POPULAR_FILMS_QUERY = GET_ALL_QUERY + """
+            ORDER BY f.like_count DESC, f.name
+            LIMIT ?
+            """;
+
+    private static final String GET_TOP_POPULAR_FILMS_FILTERED_QUERY = GET_ALL_QUERY + """
+            WHERE (CAST(? AS INT) IS NULL
+                   OR EXISTS (SELECT 1 FROM film_genres AS fg WHERE fg.film_id = f.id AND fg.genre_id = ?))
+            AND (CAST(? AS INT) IS NULL OR f.rating_id = ?)
+            AND (CAST(? AS INT) IS NULL OR EXTRACT(YEAR FROM f.release_date) = ?)
+            ORDER BY f.like_count DESC, f.name
+            LIMIT ?
+            """;
+
+    private static final String SEARCH_FILMS_QUERY = GET_ALL_QUERY + """
+            WHERE LOWER(f.name) LIKE ? ESCAPE '\\' OR LOWER(f.description) LIKE ? ESCAPE '\\'
+            ORDER BY CASE WHEN LOWER(f.name) LIKE ? ESCAPE '\\' THEN 0 ELSE 1 END, f.like_count DESC, f.id
+            LIMIT ?
+            """;
+
+    private static final String GET_TRENDING_FILMS_QUERY = """
+            SELECT f.id AS film_id, f.name, f.description, f.release_date, f.duration, f.rating_id AS mpa_id, mpa.name AS mpa_name
+            FROM (SELECT film_id,
+                         SUM(POWER(2, -CAST(? AS DOUBLE PRECISION) * DATEDIFF('MILLISECOND', created_at, ?)
+                                 / CAST(? AS DOUBLE PRECISION))) AS score
+                  FROM film_likes
+                  WHERE created_at > ?
+                  GROUP BY film_id) AS t
+            JOIN films AS f ON f.id = t.film_id
             LEFT JOIN mpa_rating AS mpa ON mpa.id = f.rating_id
-            GROUP BY f.id, mpa.name
-            ORDER BY likes DESC, name
+            ORDER BY t.score DESC, f.id
             LIMIT ?
             """;
 
     private static final String ADD_LIKE_TO_FILM_QUERY = """
-            INSERT INTO film_likes (film_id, user_id)
-            VALUES (?, ?)
+            INSERT INTO film_likes (film_id, user_id, created_at)
+            VALUES (?, ?, ?)
+            """;
+
+    private static final String ADD_LIKE_IF_ABSENT_QUERY = """
+            INSERT INTO film_likes (film_id, user_id, created_at)
+            SELECT CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS TIMESTAMP)
+            WHERE NOT EXISTS (SELECT 1 FROM film_likes WHERE film_id = ? AND user_id = ?)
+            """;
+
+    private static final String FIND_LIKE_CREATED_AT_QUERY = """
+            SELECT created_at
+            FROM film_likes
+            WHERE film_id = ?
+            AND user_id = ?
+            """;
+
+    private static final String FIND_LIKES_CREATED_AT_QUERY = """
+            SELECT l.film_id, l.user_id, l.created_at
+            FROM TABLE(film_id BIGINT = ?, user_id BIGINT = ?) AS ids
+            JOIN film_likes AS l ON l.film_id = ids.film_id AND l.user_id = ids.user_id
+            WHERE l.created_at IS NOT NULL
+            """;
+
+    private static final String CHANGE_LIKE_COUNT_QUERY = """
+            UPDATE films
+            SET like_count = like_count + ?
+            WHERE id = ?
             """;
 
     private static final String REMOVE_LIKE_FROM_FILM_QUERY = """
@@ -79,18 +173,127 @@ public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
             WHERE film_id = ?
             """;
 
-    public FilmDbStorage(JdbcTemplate jdbc, RowMapper<Film> mapper) {
+    private static final String FIND_FILM_GENRE_IDS_QUERY = """
+            SELECT genre_id
+            FROM film_genres
+            WHERE film_id = ?
+            """;
+
+    private static final String REMOVE_ONE_GENRE_FROM_FILM_QUERY = """
+            DELETE FROM film_genres
+            WHERE film_id = ?
+            AND genre_id = ?
+            """;
+
+    private static final String GET_RECOMMENDED_FILMS_QUERY = """
+            SELECT f.id AS film_id, f.name, f.description, f.release_date, f.duration, f.rating_id AS mpa_id, mpa.name AS mpa_name
+            FROM (SELECT l.film_id, SUM(n.similarity) AS score
+                  FROM film_likes AS l
+                  JOIN (SELECT other.user_id,
+                               CAST(COUNT(*) AS DOUBLE PRECISION) / ((SELECT COUNT(*) FROM film_likes WHERE user_id = ?)
+                                   + (SELECT COUNT(*) FROM film_likes AS c WHERE c.user_id = other.user_id)
+                                   - COUNT(*)) AS similarity
+                        FROM film_likes AS other
+                        JOIN film_likes AS own ON own.film_id = other.film_id AND own.user_id = ?
+                        WHERE other.user_id <> ?
+                        GROUP BY other.user_id
+                        ORDER BY similarity DESC, other.user_id
+                        LIMIT ?) AS n ON n.user_id = l.user_id
+                  WHERE l.film_id NOT IN (SELECT film_id FROM film_likes WHERE user_id = ?)
+                  GROUP BY l.film_id) AS s
+            JOIN films AS f ON f.id = s.film_id
+            LEFT JOIN mpa_rating AS mpa ON mpa.id = f.rating_id
+            ORDER BY s.score DESC, f.id
+            LIMIT ?
+            """;
+
+    private final PopularFilmsLeaderboard leaderboard;
+    private final LikeMatrix likeMatrix;
+    private final FilmRecommender filmRecommender;
+    private final FilmSearchIndex filmSearchIndex;
+    private final TrendingFilms trendingFilms;
+    private final IdFilter filmIdFilter;
+    private final int recommendationNeighbours;
+    private final int exportFetchSize;
+
+    public FilmDbStorage(JdbcTemplate jdbc, RowMapper<Film> mapper, PopularFilmsLeaderboard leaderboard,
+                         LikeMatrix likeMatrix, FilmRecommender filmRecommender, FilmSearchIndex filmSearchIndex,
+                         TrendingFilms trendingFilms, @Qualifier("filmIdFilter") IdFilter filmIdFilter,
+                         @Value("${filmorate.recommendations.neighbours:50}") int recommendationNeighbours,
+                         @Value("${filmorate.export.fetch-size:500}") int exportFetchSize) {
         super(jdbc, mapper);
+        this.leaderboard = leaderboard;
+        this.likeMatrix = likeMatrix;
+        this.filmRecommender = filmRecommender;
+        this.filmSearchIndex = filmSearchIndex;
+        this.trendingFilms = trendingFilms;
+        this.filmIdFilter = filmIdFilter;
+        this.recommendationNeighbours = recommendationNeighbours;
+        this.exportFetchSize = exportFetchSize;
     }
 
     @Override
     public List<Film> getAllFilms() {
         List<Film> films = findMany(GET_ALL_QUERY);
+        findGenresForAllFilms(films);
+        return films;
+    }
+
+    @Override
+    public List<Film> getFilmsPage(long afterId, int limit) {
+        List<Film> films = findMany(GET_PAGE_QUERY, afterId, limit);
         findGenresForFilms(films);
         return films;
     }
 
     @Override
+    public void streamAllFilms(Consumer<Film> consumer) {
+        // Строки одного фильма идут подряд (по одной на жанр), фильм отдаётся, когда начинается следующий.
+        // Запрос сортируется только по id, чтобы H2 отдавал строки лениво, жанры фильма сортируются здесь
+        Film[] current = new Film[1];
+        stream(STREAM_ALL_QUERY, exportFetchSize, rs -> {
+            long filmId = rs.getLong("film_id");
+            if (current[0] == null || current[0].getId() != filmId) {
+                if (current[0] != null) {
+                    consumer.accept(sortGenres(current[0]));
+                }
+                current[0] = Film.builder()
+                        .id(filmId)
+                        .name(rs.getString("name"))
+                        .description(rs.getString("description"))
+                        .duration(rs.getInt("duration"))
+                        .releaseDate(rs.getDate("release_date").toLocalDate())
+                        .mpa(MpaRating.builder()
+                                .id(rs.getInt("mpa_id"))
+                                .name(rs.getString("mpa_name"))
+                                .build())
+                        .build();
+            }
+            int genreId = rs.getInt("genre_id");
+            if (genreId != 0) {
+                if (current[0].getGenres() == null) {
+                    current[0].setGenres(new ArrayList<>());
+                }
+                current[0].getGenres().add(Genre.builder()
+                        .id(genreId)
+                        .name(rs.getString("genre_name"))
+                        .build());
+            }
+        });
+        if (current[0] != null) {
+            consumer.accept(sortGenres(current[0]));
+        }
+    }
+
+    private static Film sortGenres(Film film) {
+        if (film.getGenres() != null) {
+            film.getGenres().sort(Comparator.comparingInt(Genre::getId));
+        }
+        return film;
+    }
+
+    @Override
+    @Transactional
     public Film addFilm(Film film) {
         long id = insert(
                 INSERT_QUERY,
@@ -100,10 +303,58 @@ public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
                 film.getDuration(),
                 film.getMpa() != null ? film.getMpa().getId() : null);
         film.setId(id);
+        insertGenres(id, genreIds(film));
+        IndexUpdates.apply(
+                () -> leaderboard.addFilm(id, film.getName(), mpaId(film), film.getReleaseDate(), genreIds(film)),
+                () -> leaderboard.removeFilm(id));
+        IndexUpdates.apply(() -> filmIdFilter.add(id), () -> filmIdFilter.remove(id));
+        IndexUpdates.apply(
+                () -> filmSearchIndex.putFilm(id, film.getName(), film.getDescription()),
+                () -> filmSearchIndex.removeFilm(id));
         return film;
     }
 
     @Override
+    @Transactional
+    public List<Film> addFilms(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        List<Long> ids = batchInsert(INSERT_QUERY, films.stream()
+                .map(film -> new Object[]{
+                        film.getName(),
+                        film.getDescription(),
+                        film.getReleaseDate(),
+                        film.getDuration(),
+                        film.getMpa() != null ? film.getMpa().getId() : null})
+                .toList());
+        List<long[]> filmGenres = new ArrayList<>();
+        for (int i = 0; i < films.size(); i++) {
+            Film film = films.get(i);
+            film.setId(ids.get(i));
+            for (int genreId : genreIds(film)) {
+                filmGenres.add(new long[]{film.getId(), genreId});
+            }
+        }
+        if (!filmGenres.isEmpty()) {
+            batchUpdate(ADD_GENRE_TO_FILM_QUERY, filmGenres, (ps, filmGenre) -> {
+                ps.setLong(1, filmGenre[0]);
+                ps.setInt(2, (int) filmGenre[1]);
+            });
+        }
+        IndexUpdates.apply(
+                () -> films.forEach(film -> leaderboard.addFilm(film.getId(), film.getName(), mpaId(film),
+                        film.getReleaseDate(), genreIds(film))),
+                () -> films.forEach(film -> leaderboard.removeFilm(film.getId())));
+        IndexUpdates.apply(() -> ids.forEach(filmIdFilter::add), () -> ids.forEach(filmIdFilter::remove));
+        IndexUpdates.apply(
+                () -> films.forEach(film -> filmSearchIndex.putFilm(film.getId(), film.getName(), film.getDescription())),
+                () -> ids.forEach(filmSearchIndex::removeFilm));
+        return films;
+    }
+
+    @Override
+    @Transactional
     public Film updateFilm(Film newFilm) {
         update(
                 UPDATE_QUERY,
@@ -114,6 +365,16 @@ public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
                 newFilm.getMpa().getId(),
                 newFilm.getId()
         );
+        long filmId = newFilm.getId();
+        updateFilmGenres(filmId, genreIds(newFilm));
+        Optional<PopularFilmsLeaderboard.Entry> oldEntry = leaderboard.updateFilm(filmId, newFilm.getName(),
+                mpaId(newFilm), PopularFilmsLeaderboard.year(newFilm.getReleaseDate()));
+        IndexUpdates.onRollback(() -> oldEntry.ifPresent(
+                entry -> leaderboard.updateFilm(filmId, entry.name(), entry.mpaId(), entry.year())));
+        Optional<FilmSearchIndex.Document> oldDocument =
+                filmSearchIndex.putFilm(filmId, newFilm.getName(), newFilm.getDescription());
+        IndexUpdates.onRollback(() -> oldDocument.ifPresent(
+                document -> filmSearchIndex.putFilm(filmId, document.name(), document.description())));
         return newFilm;
     }
 
@@ -122,16 +383,100 @@ public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
         if (!delete(REMOVE_QUERY, filmId)) {
             throw new InternalServerException("Не найден фильм для удаления");
         }
+        Optional<PopularFilmsLeaderboard.Entry> removed = leaderboard.removeFilm(filmId);
+        IndexUpdates.onRollback(() -> removed.ifPresent(leaderboard::restoreFilm));
+        IndexUpdates.apply(() -> filmIdFilter.remove(filmId), () -> filmIdFilter.add(filmId));
+        Optional<FilmSearchIndex.Document> removedDocument = filmSearchIndex.removeFilm(filmId);
+        IndexUpdates.onRollback(() -> removedDocument.ifPresent(
+                document -> filmSearchIndex.putFilm(filmId, document.name(), document.description())));
+        trendingFilms.removeFilm(filmId);
+        likeMatrix.removeFilm(filmId);
     }
 
     @Override
     public Optional<Film> findFilmById(long filmId) {
-        return findOne(FIND_BY_ID_QUERY, filmId);
+        if (!filmIdFilter.mightContain(filmId)) {
+            return Optional.empty();
+        }
+        Optional<Film> film = findOne(FIND_BY_ID_QUERY, filmId);
+        if (film.isEmpty()) {
+            filmIdFilter.recordFalsePositive();
+        }
+        return film;
     }
 
     @Override
     public List<Film> getPopularFilms(int count) {
-        List<Film> films = findMany(GET_TOP_POPULAR_FILMS_QUERY, count);
+        return getPopularFilms(count, null, null, null);
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count, Integer genreId, Integer mpaId, Integer year) {
+        if (!leaderboard.isEnabled()) {
+            List<Film> films = genreId == null && mpaId == null && year == null
+                    ? findMany(GET_TOP_POPULAR_FILMS_QUERY, count)
+                    : findMany(GET_TOP_POPULAR_FILMS_FILTERED_QUERY,
+                    genreId, genreId, mpaId, mpaId, year, year, count);
+            findGenresForFilms(films);
+            return films;
+        }
+        return findFilmsInOrder(leaderboard.getTopFilmIds(count, genreId, mpaId, year));
+    }
+
+    @Override
+    public List<Film> getTrendingFilms(TrendingPeriod period, int count) {
+        if (!trendingFilms.isEnabled()) {
+            long now = System.currentTimeMillis();
+            long window = period.getWindow().toMillis();
+            List<Film> films = findMany(GET_TRENDING_FILMS_QUERY, trendingFilms.getHalfLivesPerWindow(),
+                    new Timestamp(now), window, new Timestamp(now - window), count);
+            findGenresForFilms(films);
+            return films;
+        }
+        return findFilmsInOrder(trendingFilms.getTrendingFilmIds(period, count));
+    }
+
+    @Override
+    public List<Film> getRecommendedFilms(long userId, int count) {
+        if (!likeMatrix.isEnabled()) {
+            List<Film> films = findMany(GET_RECOMMENDED_FILMS_QUERY,
+                    userId, userId, userId, recommendationNeighbours, userId, count);
+            findGenresForFilms(films);
+            return films;
+        }
+        return findFilmsInOrder(filmRecommender.getRecommendedFilmIds(userId, count));
+    }
+
+    @Override
+    public List<Film> searchFilms(String query, int count) {
+        if (!filmSearchIndex.isEnabled()) {
+            String pattern = "%" + query.toLowerCase(Locale.ROOT)
+                    .replace("\\", "\\\\")
+                    .replace("%", "\\%")
+                    .replace("_", "\\_") + "%";
+            List<Film> films = findMany(SEARCH_FILMS_QUERY, pattern, pattern, pattern, count);
+            findGenresForFilms(films);
+            return films;
+        }
+        return findFilmsInOrder(filmSearchIndex.search(query, count));
+    }
+
+    // Фильмы загружаются одним запросом и возвращаются в порядке переданных id
+    private List<Film> findFilmsInOrder(List<Long> filmIds) {
+        if (filmIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Film> mapFilmIdToFilm = new HashMap<>();
+        for (Film film : findByIds(FIND_BY_IDS_QUERY, filmIds)) {
+            mapFilmIdToFilm.put(film.getId(), film);
+        }
+        List<Film> films = new ArrayList<>(filmIds.size());
+        for (Long filmId : filmIds) {
+            Film film = mapFilmIdToFilm.get(filmId);
+            if (film != null) {
+                films.add(film);
+            }
+        }
         findGenresForFilms(films);
         return films;
     }
@@ -139,60 +484,230 @@ public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
     @Override
     public void addGenreToFilm(Long filmId, int genreId) {
         update(ADD_GENRE_TO_FILM_QUERY, filmId, genreId);
+        IndexUpdates.apply(
+                () -> leaderboard.changeGenres(filmId, List.of(genreId), List.of()),
+                () -> leaderboard.changeGenres(filmId, List.of(), List.of(genreId)));
     }
 
     @Override
+    @Transactional
     public void removeGenreFromFilm(Long filmId) {
+        List<Integer> genreIds = findColumn(FIND_FILM_GENRE_IDS_QUERY, Integer.class, filmId);
         delete(REMOVE_GENRE_FROM_FILM_QUERY, filmId);
+        IndexUpdates.apply(
+                () -> leaderboard.changeGenres(filmId, List.of(), genreIds),
+                () -> leaderboard.changeGenres(filmId, genreIds, List.of()));
     }
 
     @Override
+    @Transactional
+    public void updateFilmGenres(long filmId, Set<Integer> genreIds) {
+        Set<Integer> currentGenreIds = new HashSet<>(
+                findColumn(FIND_FILM_GENRE_IDS_QUERY, Integer.class, filmId));
+        List<Integer> genreIdsToRemove = currentGenreIds.stream()
+                .filter(genreId -> !genreIds.contains(genreId))
+                .toList();
+        List<Integer> genreIdsToAdd = genreIds.stream()
+                .filter(genreId -> !currentGenreIds.contains(genreId))
+                .toList();
+        if (!genreIdsToRemove.isEmpty()) {
+            batchUpdate(REMOVE_ONE_GENRE_FROM_FILM_QUERY, genreIdsToRemove, (ps, genreId) -> {
+                ps.setLong(1, filmId);
+                ps.setInt(2, genreId);
+            });
+        }
+        insertGenres(filmId, genreIdsToAdd);
+        IndexUpdates.apply(
+                () -> leaderboard.changeGenres(filmId, genreIdsToAdd, genreIdsToRemove),
+                () -> leaderboard.changeGenres(filmId, genreIdsToRemove, genreIdsToAdd));
+    }
+
+    @Override
+    @Transactional
     public void addLikeToFilm(Long filmId, Long userId) {
-        update(ADD_LIKE_TO_FILM_QUERY, filmId, userId);
+        Instant likedAt = Instant.now();
+        update(ADD_LIKE_TO_FILM_QUERY, filmId, userId, Timestamp.from(likedAt));
+        update(CHANGE_LIKE_COUNT_QUERY, 1L, filmId);
+        IndexUpdates.apply(
+                () -> leaderboard.changeLikes(filmId, 1),
+                () -> leaderboard.changeLikes(filmId, -1));
+        IndexUpdates.apply(
+                () -> likeMatrix.addLike(filmId, userId),
+                () -> likeMatrix.removeLike(filmId, userId));
+        IndexUpdates.apply(
+                () -> trendingFilms.addLike(filmId, likedAt),
+                () -> trendingFilms.removeLike(filmId, likedAt));
     }
 
     @Override
+    @Transactional
     public void removeLikeFromFilm(Long filmId, Long userId) {
+        // Время лайка нужно, чтобы вычесть его из той корзины счётчика трендов, в которую он попал
+        List<Timestamp> likedAt = trendingFilms.isEnabled()
+                ? findColumn(FIND_LIKE_CREATED_AT_QUERY, Timestamp.class, filmId, userId)
+                : List.of();
         if (!delete(REMOVE_LIKE_FROM_FILM_QUERY, filmId, userId)) {
             throw new InternalServerException("Не найден лайк для удаления");
         }
+        update(CHANGE_LIKE_COUNT_QUERY, -1L, filmId);
+        IndexUpdates.apply(
+                () -> leaderboard.changeLikes(filmId, -1),
+                () -> leaderboard.changeLikes(filmId, 1));
+        IndexUpdates.apply(
+                () -> likeMatrix.removeLike(filmId, userId),
+                () -> likeMatrix.addLike(filmId, userId));
+        likedAt.stream()
+                .filter(Objects::nonNull)
+                .map(Timestamp::toInstant)
+                .forEach(at -> IndexUpdates.apply(
+                        () -> trendingFilms.removeLike(filmId, at),
+                        () -> trendingFilms.addLike(filmId, at)));
     }
 
-    private void findGenresForFilms(List<Film> films) {
-        ArrayList<Long> filmIds = new ArrayList<>();
-        for (Film film : films) {
-            filmIds.add(film.getId());
-        }
-        List<FilmGenre> filmGenres = jdbc.query(connection -> {
-            StringBuilder query = new StringBuilder();
-            query.append("SELECT g.id AS genre_id, g.name AS genre_name, fg.film_id " +
-                    "FROM film_genres AS fg LEFT join genres AS g ON fg.genre_id = g.id " +
-                    "WHERE film_id IN (");
-            for (int i = 0; i < filmIds.size(); i++) {
-                if (i == 0) {
-                    query.append("?");
-                    continue;
+    @Override
+    @Transactional
+    public void applyLikeChanges(Collection<LikeChange> changes) {
+        List<LikeChange> likes = changes.stream().filter(LikeChange::liked).toList();
+        List<LikeChange> unlikes = changes.stream().filter(change -> !change.liked()).toList();
+        Map<Long, Long> deltas = new HashMap<>();
+        List<LikeChange> applied = new ArrayList<>();
+        Instant likedAt = Instant.now();
+        collectLikeDeltas(deltas, applied, likes, 1, batchUpdate(ADD_LIKE_IF_ABSENT_QUERY, likes,
+                (ps, like) -> {
+                    ps.setLong(1, like.filmId());
+                    ps.setLong(2, like.userId());
+                    ps.setTimestamp(3, Timestamp.from(likedAt));
+                    ps.setLong(4, like.filmId());
+                    ps.setLong(5, like.userId());
+                }));
+        Map<LikeChange, Instant> unlikedAt = findLikedAt(unlikes);
+        collectLikeDeltas(deltas, applied, unlikes, -1, batchUpdate(REMOVE_LIKE_FROM_FILM_QUERY, unlikes,
+                (ps, unlike) -> {
+                    ps.setLong(1, unlike.filmId());
+                    ps.setLong(2, unlike.userId());
+                }));
+        List<Map.Entry<Long, Long>> changedFilms = deltas.entrySet().stream()
+                .filter(delta -> delta.getValue() != 0)
+                .toList();
+        batchUpdate(CHANGE_LIKE_COUNT_QUERY, changedFilms, (ps, delta) -> {
+            ps.setLong(1, delta.getValue());
+            ps.setLong(2, delta.getKey());
+        });
+        IndexUpdates.apply(
+                () -> changedFilms.forEach(delta -> leaderboard.changeLikes(delta.getKey(), delta.getValue())),
+                () -> changedFilms.forEach(delta -> leaderboard.changeLikes(delta.getKey(), -delta.getValue())));
+        IndexUpdates.apply(
+                () -> applied.forEach(change -> applyToLikeMatrix(change, change.liked())),
+                () -> applied.forEach(change -> applyToLikeMatrix(change, !change.liked())));
+        IndexUpdates.apply(
+                () -> applied.forEach(change -> applyToTrendingFilms(change, change.liked(), likedAt, unlikedAt)),
+                () -> applied.forEach(change -> applyToTrendingFilms(change, !change.liked(), likedAt, unlikedAt)));
+    }
+
+    private Map<LikeChange, Instant> findLikedAt(List<LikeChange> unlikes) {
+        if (!trendingFilms.isEnabled() || unlikes.isEmpty()) {
+            return Map.of();
+        }
+        Long[] filmIds = unlikes.stream().map(LikeChange::filmId).toArray(Long[]::new);
+        Long[] userIds = unlikes.stream().map(LikeChange::userId).toArray(Long[]::new);
+        Map<LikeChange, Instant> likedAt = new HashMap<>();
+        findMany(FIND_LIKES_CREATED_AT_QUERY, (rs, rowNum) -> Map.entry(
+                new LikeChange(rs.getLong("film_id"), rs.getLong("user_id"), false),
+                rs.getTimestamp("created_at").toInstant()), filmIds, userIds)
+                .forEach(like -> likedAt.put(like.getKey(), like.getValue()));
+        return likedAt;
+    }
+
+    private void applyToTrendingFilms(LikeChange change, boolean liked, Instant likedAt,
+                                      Map<LikeChange, Instant> unlikedAt) {
+        Instant at = change.liked() ? likedAt : unlikedAt.get(change);
+        if (at == null) {
+            return;
+        }
+        if (liked) {
+            trendingFilms.addLike(change.filmId(), at);
+        } else {
+            trendingFilms.removeLike(change.filmId(), at);
+        }
+    }
+
+    private void applyToLikeMatrix(LikeChange change, boolean liked) {
+        if (liked) {
+            likeMatrix.addLike(change.filmId(), change.userId());
+        } else {
+            likeMatrix.removeLike(change.filmId(), change.userId());
+        }
+    }
+
+    private static void collectLikeDeltas(Map<Long, Long> deltas, List<LikeChange> applied,
+                                          List<LikeChange> changes, long sign, int[][] updateCounts) {
+        int i = 0;
+        for (int[] batch : updateCounts) {
+            for (int updated : batch) {
+                if (updated > 0) {
+                    deltas.merge(changes.get(i).filmId(), sign, Long::sum);
+                    applied.add(changes.get(i));
                 }
-                query.append(", ?");
+                i++;
             }
-            query.append(")");
+        }
+    }
 
-            PreparedStatement stmt = connection.prepareStatement(query.toString());
+    private void insertGenres(long filmId, Collection<Integer> genreIds) {
+        if (genreIds.isEmpty()) {
+            return;
+        }
+        batchUpdate(ADD_GENRE_TO_FILM_QUERY, genreIds, (ps, genreId) -> {
+            ps.setLong(1, filmId);
+            ps.setInt(2, genreId);
+        });
+    }
 
-            for (int i = 0; i < filmIds.size(); i++) {
-                stmt.setLong(i + 1, filmIds.get(i));
+    private static int mpaId(Film film) {
+        return film.getMpa() != null ? film.getMpa().getId() : 0;
+    }
+
+    private static Set<Integer> genreIds(Film film) {
+        Set<Integer> genreIds = new LinkedHashSet<>();
+        if (film.getGenres() != null) {
+            for (Genre genre : film.getGenres()) {
+                genreIds.add(genre.getId());
             }
-            return stmt;
-        }, mapFilmGenre);
+        }
+        return genreIds;
+    }
 
-        Map<Long, Film> mapFilmIdToFilm = new HashMap<>();
+    void findGenresForFilms(List<Film> films) {
+        if (films.isEmpty()) {
+            return;
+        }
+        Map<Long, Film> mapFilmIdToFilm = mapFilmsById(films);
+        setGenres(mapFilmIdToFilm, findByIds(FIND_GENRES_FOR_FILMS_QUERY,
+                new ArrayList<>(mapFilmIdToFilm.keySet()), mapFilmGenre));
+    }
+
+    // Для полного каталога список идентификаторов не нужен: жанры читаются одним проходом по таблице
+    void findGenresForAllFilms(List<Film> films) {
+        if (films.isEmpty()) {
+            return;
+        }
+        setGenres(mapFilmsById(films), findMany(FIND_ALL_FILM_GENRES_QUERY, mapFilmGenre));
+    }
 
+    private Map<Long, Film> mapFilmsById(List<Film> films) {
+        Map<Long, Film> mapFilmIdToFilm = new HashMap<>();
         for (Film film : films) {
             mapFilmIdToFilm.put(film.getId(), film);
         }
+        return mapFilmIdToFilm;
+    }
 
+    private void setGenres(Map<Long, Film> mapFilmIdToFilm, List<FilmGenre> filmGenres) {
         for (FilmGenre filmGenre : filmGenres) {
             Film film = mapFilmIdToFilm.get(filmGenre.getFilmId());
+            if (film == null) {
+                continue;
+            }
             if (film.getGenres() == null) {
                 film.setGenres(new ArrayList<>());
             }
@@ -214,6 +729,6 @@ public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
     private final RowMapper<FilmGenre> mapFilmGenre = (ResultSet rs, int rowNum) -> FilmGenre.builder()
             .filmId(rs.getLong("film_id"))
             .genreId(rs.getLong("genre_id"))
-            .genreName(rs.getString("name"))
+            .genreName(rs.getString("genre_name"))
             .build();
 }
\ No newline at end of file
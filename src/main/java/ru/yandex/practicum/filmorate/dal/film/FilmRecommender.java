@@ -0,0 +1,154 @@
+package ru.yandex.practicum.filmorate.dal.film;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dal.IdArrays;
+import ru.yandex.practicum.filmorate.dal.IndexUpdates;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+// Рекомендации фильмов коллаборативной фильтрацией по матрице лайков: находятся пользователи,
+// чьи лайки больше всего пересекаются с лайками пользователя (сходство Жаккара), и предлагаются
+// понравившиеся им фильмы. Результат кэшируется и сбрасывается при изменении лайков пользователя
+@Component
+public class FilmRecommender implements LikeMatrix.Listener {
+
+    private static final Comparator<Neighbour> BY_SIMILARITY = Comparator
+            .comparingDouble(Neighbour::similarity).reversed()
+            .thenComparingLong(Neighbour::userId);
+
+    private static final Comparator<Map.Entry<Long, Double>> BY_SCORE = Map.Entry.<Long, Double>comparingByValue()
+            .reversed()
+            .thenComparing(Map.Entry.comparingByKey());
+
+    // Меньшие объёмы быстрее обрабатываются в одном потоке, чем делятся между потоками fork-join
+    private static final int PARALLEL_THRESHOLD = 1 << 14;
+
+    private final LikeMatrix likeMatrix;
+    private final int maxNeighbours;
+    private final int maxLikersPerFilm;
+    private final int maxResults;
+    private final Cache<Long, List<Long>> recommendations;
+
+    public FilmRecommender(LikeMatrix likeMatrix,
+                           @Value("${filmorate.recommendations.neighbours:50}") int maxNeighbours,
+                           @Value("${filmorate.recommendations.max-likers-per-film:1000}") int maxLikersPerFilm,
+                           @Value("${filmorate.pagination.max-limit:100}") int maxResults,
+                           @Value("${filmorate.recommendations.cache.max-size:10000}") long cacheSize,
+                           @Value("${filmorate.recommendations.cache.ttl:PT10M}") Duration cacheTtl) {
+        this.likeMatrix = likeMatrix;
+        this.maxNeighbours = maxNeighbours;
+        this.maxLikersPerFilm = maxLikersPerFilm;
+        this.maxResults = maxResults;
+        this.recommendations = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(cacheTtl)
+                .build();
+        likeMatrix.addListener(this);
+    }
+
+    public List<Long> getRecommendedFilmIds(long userId, int limit) {
+        List<Long> filmIds = recommendations.get(userId, this::compute);
+        return filmIds.subList(0, Math.min(limit, filmIds.size()));
+    }
+
+    // Повторный сброс после завершения транзакции убирает результат, посчитанный
+    // параллельно с изменением лайков
+    @Override
+    public void likesChanged(long userId) {
+        recommendations.invalidate(userId);
+        IndexUpdates.afterCompletion(() -> recommendations.invalidate(userId));
+    }
+
+    @Override
+    public void matrixReloaded() {
+        recommendations.invalidateAll();
+    }
+
+    List<Long> compute(long userId) {
+        long[] userFilmIds = likeMatrix.getFilmIds(userId);
+        if (userFilmIds.length == 0) {
+            return List.of();
+        }
+        // Все, кто лайкнул фильмы пользователя: после сортировки число общих лайков
+        // с другим пользователем равно длине серии его id. У популярных фильмов
+        // берётся не больше maxLikersPerFilm пользователей
+        long[][] likers = new long[userFilmIds.length][];
+        int size = 0;
+        for (int i = 0; i < userFilmIds.length; i++) {
+            likers[i] = IdArrays.sample(likeMatrix.getUserIds(userFilmIds[i]), maxLikersPerFilm);
+            size += likers[i].length;
+        }
+        long[] coLikers = new long[size];
+        int offset = 0;
+        for (long[] filmLikers : likers) {
+            System.arraycopy(filmLikers, 0, coLikers, offset, filmLikers.length);
+            offset += filmLikers.length;
+        }
+        if (isParallel(coLikers.length)) {
+            Arrays.parallelSort(coLikers);
+        } else {
+            Arrays.sort(coLikers);
+        }
+        long[] candidateIds = new long[coLikers.length];
+        int[] overlaps = new int[coLikers.length];
+        int candidates = 0;
+        int runStart = 0;
+        for (int i = 1; i <= coLikers.length; i++) {
+            if (i < coLikers.length && coLikers[i] == coLikers[runStart]) {
+                continue;
+            }
+            if (coLikers[runStart] != userId) {
+                candidateIds[candidates] = coLikers[runStart];
+                overlaps[candidates] = i - runStart;
+                candidates++;
+            }
+            runStart = i;
+        }
+
+        IntStream candidateIndexes = IntStream.range(0, candidates);
+        if (isParallel(candidates)) {
+            candidateIndexes = candidateIndexes.parallel();
+        }
+        List<Neighbour> neighbours = candidateIndexes
+                .mapToObj(i -> new Neighbour(candidateIds[i], jaccard(overlaps[i], userFilmIds.length,
+                        likeMatrix.getFilmIds(candidateIds[i]).length)))
+                .sorted(BY_SIMILARITY)
+                .limit(maxNeighbours)
+                .toList();
+
+        // Оценка фильма — сумма сходства соседей, которые его лайкнули
+        Map<Long, Double> scores = new HashMap<>();
+        for (Neighbour neighbour : neighbours) {
+            for (long filmId : likeMatrix.getFilmIds(neighbour.userId())) {
+                if (!IdArrays.contains(userFilmIds, filmId)) {
+                    scores.merge(filmId, neighbour.similarity(), Double::sum);
+                }
+            }
+        }
+        return scores.entrySet().stream()
+                .sorted(BY_SCORE)
+                .limit(maxResults)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private static boolean isParallel(int size) {
+        return size >= PARALLEL_THRESHOLD && ForkJoinPool.getCommonPoolParallelism() > 1;
+    }
+
+    private static double jaccard(int overlap, int firstSize, int secondSize) {
+        return (double) overlap / Math.max(firstSize + secondSize - overlap, 1);
+    }
+
+    private record Neighbour(long userId, double similarity) {
+    }
+}
@@ -0,0 +1,435 @@
+package ru.yandex.practicum.filmorate.dal.film;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dal.IdArrays;
+import ru.yandex.practicum.filmorate.dal.IndexUpdates;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Поиск фильмов по названию и описанию. Слова приводятся к нижнему регистру (ё заменяется на е)
+// и хранятся в обратном индексе: слово -> отсортированные id фильмов, отдельно для названий
+// и описаний. Слова запроса сопоставляются со словарём через индекс триграмм, поэтому находятся
+// начала и части слов, а также слова с опечатками
+@Slf4j
+@Component
+public class FilmSearchIndex {
+
+    private static final String LOAD_QUERY = """
+            SELECT id, name, description
+            FROM films
+            ORDER BY id
+            """;
+
+    private static final Comparator<Hit> WORST_FIRST = Comparator.comparingDouble(Hit::score)
+            .thenComparing(Comparator.comparingLong(Hit::filmId).reversed());
+
+    private static final double NAME_WEIGHT = 3;
+    private static final double DESCRIPTION_WEIGHT = 1;
+    private static final double PREFIX_SIMILARITY = 0.8;
+    private static final double SUBSTRING_SIMILARITY = 0.6;
+    private static final double MIN_TRIGRAM_SIMILARITY = 0.3;
+    private static final int MIN_SUBSTRING_LENGTH = 3;
+    // Короткое слово запроса может совпасть с началом тысяч слов словаря, берутся самые похожие
+    private static final int MAX_EXPANSIONS = 50;
+    private static final int RANKING_SCAN_MIN_CANDIDATES = 1024;
+
+    private final JdbcTemplate jdbc;
+    private final PopularFilmsLeaderboard leaderboard;
+    private final boolean enabled;
+    private final double popularityWeight;
+    private final Map<Long, Document> documents = new ConcurrentHashMap<>();
+    private final Map<String, long[]> nameIndex = new ConcurrentHashMap<>();
+    private final Map<String, long[]> descriptionIndex = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> trigramIndex = new ConcurrentHashMap<>();
+    private final Lock writeLock = new ReentrantLock();
+
+    public FilmSearchIndex(JdbcTemplate jdbc, PopularFilmsLeaderboard leaderboard,
+                           @Value("${filmorate.search.in-memory:true}") boolean enabled,
+                           @Value("${filmorate.search.popularity-weight:0.1}") double popularityWeight) {
+        this.jdbc = jdbc;
+        this.leaderboard = leaderboard;
+        this.enabled = enabled;
+        this.popularityWeight = popularityWeight;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        Map<Long, Document> loaded = new HashMap<>();
+        Map<String, Postings> names = new HashMap<>();
+        Map<String, Postings> descriptions = new HashMap<>();
+        jdbc.query(LOAD_QUERY, (RowCallbackHandler) rs -> {
+            long filmId = rs.getLong("id");
+            Document document = new Document(rs.getString("name"), rs.getString("description"));
+            loaded.put(filmId, document);
+            for (String word : tokenize(document.name())) {
+                names.computeIfAbsent(word, key -> new Postings()).add(filmId);
+            }
+            for (String word : tokenize(document.description())) {
+                descriptions.computeIfAbsent(word, key -> new Postings()).add(filmId);
+            }
+        });
+        Map<String, Set<String>> trigrams = new HashMap<>();
+        for (String word : union(names.keySet(), descriptions.keySet())) {
+            for (String trigram : trigrams(word)) {
+                trigrams.computeIfAbsent(trigram, key -> ConcurrentHashMap.newKeySet()).add(word);
+            }
+        }
+        writeLock.lock();
+        try {
+            documents.clear();
+            documents.putAll(loaded);
+            nameIndex.clear();
+            names.forEach((word, postings) -> nameIndex.put(word, postings.toArray()));
+            descriptionIndex.clear();
+            descriptions.forEach((word, postings) -> descriptionIndex.put(word, postings.toArray()));
+            trigramIndex.clear();
+            trigramIndex.putAll(trigrams);
+        } finally {
+            writeLock.unlock();
+        }
+        log.info("Поисковый индекс фильмов загружен, фильмов: {}, слов: {}, триграмм: {}",
+                loaded.size(), union(names.keySet(), descriptions.keySet()).size(), trigrams.size());
+        IndexUpdates.onRollback(this::load);
+    }
+
+    // Новое название и описание фильма; возвращается прежний вариант, чтобы его можно было вернуть
+    public Optional<Document> putFilm(long filmId, String name, String description) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        writeLock.lock();
+        try {
+            Document previous = documents.put(filmId, new Document(name, description));
+            if (previous != null) {
+                unindex(filmId, previous);
+            }
+            for (String word : tokenize(name)) {
+                nameIndex.merge(word, new long[]{filmId}, (filmIds, added) -> IdArrays.with(filmIds, filmId));
+                addToVocabulary(word);
+            }
+            for (String word : tokenize(description)) {
+                descriptionIndex.merge(word, new long[]{filmId}, (filmIds, added) -> IdArrays.with(filmIds, filmId));
+                addToVocabulary(word);
+            }
+            return Optional.ofNullable(previous);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public Optional<Document> removeFilm(long filmId) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        writeLock.lock();
+        try {
+            Document previous = documents.remove(filmId);
+            if (previous != null) {
+                unindex(filmId, previous);
+            }
+            return Optional.ofNullable(previous);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Фильм должен содержать все слова запроса (точно, по началу, как часть или с опечаткой).
+    // Релевантность — сумма лучших совпадений слов с учётом поля, итоговая оценка умножается
+    // на 1 + popularityWeight * ln(1 + лайки)
+    public List<Long> search(String query, int limit) {
+        Set<String> tokens = tokenize(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        List<List<Match>> matches = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            List<Match> tokenMatches = expand(token);
+            if (tokenMatches.isEmpty()) {
+                return List.of();
+            }
+            matches.add(tokenMatches);
+        }
+        // Кандидаты берутся из самого короткого списка, остальные слова проверяются
+        // двоичным поиском в их списках
+        List<Match> driving = matches.stream()
+                .min(Comparator.comparingLong(FilmSearchIndex::postingsSize))
+                .orElseThrow();
+        double maxRelevance = matches.stream()
+                .mapToDouble(FilmSearchIndex::maxContribution)
+                .sum();
+
+        // В куче limit лучших результатов, сверху худший из них. Кандидат, у которого даже
+        // максимальная релевантность не дотягивает до худшего, не оценивается
+        PriorityQueue<Hit> top = new PriorityQueue<>(limit + 1, WORST_FIRST);
+        if (leaderboard.isEnabled() && postingsSize(driving) > RANKING_SCAN_MIN_CANDIDATES) {
+            // Кандидатов много: фильмы перебираются по убыванию лайков, и перебор заканчивается,
+            // когда оценка не может превысить худшую в куче ни у одного из оставшихся.
+            // У фильмов без одного из слов запроса релевантность нулевая
+            leaderboard.forEachByLikes((filmId, likes) -> {
+                double popularity = popularity(likes);
+                if (top.size() == limit && maxRelevance * popularity < top.peek().score()) {
+                    return false;
+                }
+                offer(top, limit, filmId, relevance(filmId, matches) * popularity);
+                return true;
+            });
+        } else {
+            long[] candidates = candidates(driving);
+            long[] likes = leaderboard.getLikes(candidates);
+            for (int i = 0; i < candidates.length; i++) {
+                double popularity = popularity(likes[i]);
+                if (top.size() < limit || maxRelevance * popularity > top.peek().score()) {
+                    offer(top, limit, candidates[i], relevance(candidates[i], matches) * popularity);
+                }
+            }
+        }
+        List<Long> filmIds = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            filmIds.add(top.poll().filmId());
+        }
+        return filmIds.reversed();
+    }
+
+    private double popularity(long likes) {
+        return 1 + popularityWeight * Math.log1p(likes);
+    }
+
+    private static void offer(PriorityQueue<Hit> top, int limit, long filmId, double score) {
+        if (score == 0) {
+            return;
+        }
+        top.add(new Hit(filmId, score));
+        if (top.size() > limit) {
+            top.poll();
+        }
+    }
+
+    // Слово, которое встречается только в описаниях, не даст больше веса описания
+    private static double maxContribution(List<Match> tokenMatches) {
+        double max = 0;
+        for (Match match : tokenMatches) {
+            double weight = match.nameFilmIds().length > 0 ? NAME_WEIGHT : DESCRIPTION_WEIGHT;
+            max = Math.max(max, match.similarity() * weight);
+        }
+        return max;
+    }
+
+    private static double relevance(long filmId, List<List<Match>> matches) {
+        double relevance = 0;
+        for (List<Match> tokenMatches : matches) {
+            double best = 0;
+            for (Match match : tokenMatches) {
+                if (match.similarity() * NAME_WEIGHT <= best) {
+                    break;
+                }
+                if (IdArrays.contains(match.nameFilmIds(), filmId)) {
+                    best = match.similarity() * NAME_WEIGHT;
+                } else if (IdArrays.contains(match.descriptionFilmIds(), filmId)) {
+                    best = Math.max(best, match.similarity() * DESCRIPTION_WEIGHT);
+                }
+            }
+            if (best == 0) {
+                return 0;
+            }
+            relevance += best;
+        }
+        return relevance;
+    }
+
+    // Слова словаря, похожие на слово запроса, по убыванию сходства
+    private List<Match> expand(String token) {
+        Set<String> tokenTrigrams = trigrams(token);
+        List<Set<String>> lists = tokenTrigrams.stream()
+                .map(trigram -> trigramIndex.getOrDefault(trigram, Set.of()))
+                .sorted(Comparator.comparingInt(Set::size))
+                .toList();
+        // Любое подходящее слово делит с запросом не меньше minShared триграмм, поэтому
+        // встречается хотя бы в одном из lists.size() - minShared + 1 самых коротких списков.
+        // Остальные списки только досчитывают совпадения уже найденных слов
+        int minShared = (int) Math.ceil(MIN_TRIGRAM_SIMILARITY * tokenTrigrams.size());
+        if (token.length() >= MIN_SUBSTRING_LENGTH) {
+            minShared = Math.min(minShared, trigrams(token, "", "").size());
+        }
+        minShared = Math.max(1, Math.min(minShared, tokenTrigrams.size() - 1));
+        int generating = lists.size() - minShared + 1;
+        Map<String, Integer> shared = new HashMap<>();
+        for (int i = 0; i < lists.size(); i++) {
+            if (i < generating) {
+                for (String word : lists.get(i)) {
+                    shared.merge(word, 1, Integer::sum);
+                }
+            } else {
+                Set<String> words = lists.get(i);
+                shared.replaceAll((word, count) -> words.contains(word) ? count + 1 : count);
+            }
+        }
+        List<Match> matches = new ArrayList<>();
+        shared.forEach((word, count) -> {
+            double similarity = similarity(token, word, count, tokenTrigrams.size());
+            if (similarity > 0) {
+                matches.add(new Match(similarity,
+                        nameIndex.getOrDefault(word, IdArrays.EMPTY),
+                        descriptionIndex.getOrDefault(word, IdArrays.EMPTY)));
+            }
+        });
+        matches.sort(Comparator.comparingDouble(Match::similarity).reversed());
+        return matches.size() > MAX_EXPANSIONS ? matches.subList(0, MAX_EXPANSIONS) : matches;
+    }
+
+    private static double similarity(String token, String word, int sharedTrigrams, int tokenTrigrams) {
+        if (word.equals(token)) {
+            return 1;
+        }
+        if (word.startsWith(token)) {
+            return PREFIX_SIMILARITY;
+        }
+        if (token.length() >= MIN_SUBSTRING_LENGTH && word.contains(token)) {
+            return SUBSTRING_SIMILARITY;
+        }
+        // Сходство Жаккара по триграммам; у слова без повторов их на одну больше, чем букв
+        double jaccard = (double) sharedTrigrams / (tokenTrigrams + word.length() + 1 - sharedTrigrams);
+        return jaccard >= MIN_TRIGRAM_SIMILARITY ? Math.min(jaccard, SUBSTRING_SIMILARITY) : 0;
+    }
+
+    private static long[] candidates(List<Match> matches) {
+        long[] filmIds = new long[(int) postingsSize(matches)];
+        int size = 0;
+        for (Match match : matches) {
+            System.arraycopy(match.nameFilmIds(), 0, filmIds, size, match.nameFilmIds().length);
+            size += match.nameFilmIds().length;
+            System.arraycopy(match.descriptionFilmIds(), 0, filmIds, size, match.descriptionFilmIds().length);
+            size += match.descriptionFilmIds().length;
+        }
+        Arrays.sort(filmIds);
+        int distinct = 0;
+        for (int i = 0; i < filmIds.length; i++) {
+            if (i == 0 || filmIds[i] != filmIds[i - 1]) {
+                filmIds[distinct++] = filmIds[i];
+            }
+        }
+        return Arrays.copyOf(filmIds, distinct);
+    }
+
+    private static long postingsSize(List<Match> matches) {
+        long size = 0;
+        for (Match match : matches) {
+            size += match.nameFilmIds().length + match.descriptionFilmIds().length;
+        }
+        return size;
+    }
+
+    private void unindex(long filmId, Document document) {
+        for (String word : tokenize(document.name())) {
+            nameIndex.computeIfPresent(word, (key, filmIds) -> nullIfEmpty(IdArrays.without(filmIds, filmId)));
+            removeFromVocabularyIfUnused(word);
+        }
+        for (String word : tokenize(document.description())) {
+            descriptionIndex.computeIfPresent(word, (key, filmIds) -> nullIfEmpty(IdArrays.without(filmIds, filmId)));
+            removeFromVocabularyIfUnused(word);
+        }
+    }
+
+    private void addToVocabulary(String word) {
+        for (String trigram : trigrams(word)) {
+            trigramIndex.computeIfAbsent(trigram, key -> ConcurrentHashMap.newKeySet()).add(word);
+        }
+    }
+
+    private void removeFromVocabularyIfUnused(String word) {
+        if (nameIndex.containsKey(word) || descriptionIndex.containsKey(word)) {
+            return;
+        }
+        for (String trigram : trigrams(word)) {
+            trigramIndex.computeIfPresent(trigram, (key, words) -> {
+                words.remove(word);
+                return words.isEmpty() ? null : words;
+            });
+        }
+    }
+
+    private static long[] nullIfEmpty(long[] ids) {
+        return ids.length == 0 ? null : ids;
+    }
+
+    private static Set<String> union(Set<String> first, Set<String> second) {
+        Set<String> union = new HashSet<>(first);
+        union.addAll(second);
+        return union;
+    }
+
+    // Слова — последовательности букв и цифр любого алфавита
+    static Set<String> tokenize(String text) {
+        if (text == null) {
+            return Set.of();
+        }
+        Set<String> words = new LinkedHashSet<>();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                char lower = Character.toLowerCase(c);
+                word.append(lower == 'ё' ? 'е' : lower);
+            } else if (!word.isEmpty()) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        return words;
+    }
+
+    // Триграммы слова с двумя пробелами в начале и одним в конце, как в pg_trgm:
+    // начало слова даёт больше совпадений, чем середина
+    static Set<String> trigrams(String word) {
+        return trigrams(word, "  ", " ");
+    }
+
+    private static Set<String> trigrams(String word, String before, String after) {
+        String padded = before + word + after;
+        Set<String> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    // Фильмы загружаются по возрастанию id, поэтому списки сразу получаются отсортированными
+    private static class Postings {
+
+        private long[] filmIds = new long[4];
+        private int size;
+
+        void add(long filmId) {
+            if (size == filmIds.length) {
+                filmIds = Arrays.copyOf(filmIds, size * 2);
+            }
+            filmIds[size++] = filmId;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(filmIds, size);
+        }
+    }
+
+    public record Document(String name, String description) {
+    }
+
+    private record Match(double similarity, long[] nameFilmIds, long[] descriptionFilmIds) {
+    }
+
+    private record Hit(long filmId, double score) {
+    }
+}
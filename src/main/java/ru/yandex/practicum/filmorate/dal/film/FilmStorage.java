@@ -1,16 +1,26 @@
 package ru.yandex.practicum.filmorate.dal.film;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.TrendingPeriod;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 
 public interface FilmStorage {
 
     List<Film> getAllFilms();
 
+    List<Film> getFilmsPage(long afterId, int limit);
+
+    void streamAllFilms(Consumer<Film> consumer);
+
     Film addFilm(Film film);
 
+    List<Film> addFilms(List<Film> films);
+
     Film updateFilm(Film newFilm);
 
     void removeFilm(long filmId);
@@ -19,11 +29,23 @@ public interface FilmStorage {
 
     List<Film> getPopularFilms(int count);
 
+    List<Film> getPopularFilms(int count, Integer genreId, Integer mpaId, Integer year);
+
+    List<Film> getTrendingFilms(TrendingPeriod period, int count);
+
+    List<Film> getRecommendedFilms(long userId, int count);
+
+    List<Film> searchFilms(String query, int count);
+
     void addGenreToFilm(Long filmId, int genreId);
 
     void removeGenreFromFilm(Long filmId);
 
+    void updateFilmGenres(long filmId, Set<Integer> genreIds);
+
     void addLikeToFilm(Long filmId, Long userId);
 
     void removeLikeFromFilm(Long filmId, Long userId);
+
+    void applyLikeChanges(Collection<LikeChange> changes);
 }
\ No newline at end of file
@@ -0,0 +1,4 @@
+package ru.yandex.practicum.filmorate.dal.film;
+
+public record LikeChange(long filmId, long userId, boolean liked) {
+}
@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.dal.film;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.dal.EntityVersions;
+import java.util.List;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LikeCountReconciler implements ApplicationRunner {
+
+    private static final String BACKFILL_QUERY = """
+            UPDATE films AS f
+            SET like_count = (SELECT COUNT(*) FROM film_likes AS fl WHERE fl.film_id = f.id)
+            """;
+
+    private static final String FIND_DRIFTED_FILMS_QUERY = """
+            SELECT f.id
+            FROM films AS f
+            LEFT JOIN film_likes AS fl ON fl.film_id = f.id
+            GROUP BY f.id, f.like_count
+            HAVING f.like_count <> COUNT(fl.user_id)
+            """;
+
+    private static final String FIX_LIKE_COUNT_QUERY = """
+            UPDATE films AS f
+            SET like_count = (SELECT COUNT(*) FROM film_likes AS fl WHERE fl.film_id = f.id)
+            WHERE f.id = ?
+            """;
+
+    private final JdbcTemplate jdbc;
+    private final PopularFilmsLeaderboard leaderboard;
+    private final EntityVersions versions;
+
+    @Value("${filmorate.likes.backfill-on-startup:false}")
+    private boolean backfillOnStartup;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (backfillOnStartup) {
+            backfill();
+        }
+    }
+
+    @Transactional
+    public int backfill() {
+        int updated = jdbc.update(BACKFILL_QUERY);
+        log.info("Счётчики лайков пересчитаны для {} фильмов", updated);
+        leaderboard.load();
+        versions.catalogChanged();
+        return updated;
+    }
+
+    @Scheduled(initialDelayString = "${filmorate.likes.reconcile-interval:PT1H}",
+            fixedDelayString = "${filmorate.likes.reconcile-interval:PT1H}")
+    public int reconcile() {
+        List<Long> driftedFilmIds = jdbc.queryForList(FIND_DRIFTED_FILMS_QUERY, Long.class);
+        if (driftedFilmIds.isEmpty()) {
+            return 0;
+        }
+        log.warn("Обнаружено расхождение счётчика лайков у фильмов {}", driftedFilmIds);
+        jdbc.batchUpdate(FIX_LIKE_COUNT_QUERY, driftedFilmIds, driftedFilmIds.size(),
+                (ps, filmId) -> ps.setLong(1, filmId));
+        leaderboard.load();
+        versions.catalogChanged();
+        return driftedFilmIds.size();
+    }
+}
@@ -0,0 +1,177 @@
+package ru.yandex.practicum.filmorate.dal.film;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dal.IdArrays;
+import ru.yandex.practicum.filmorate.dal.IndexUpdates;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Разреженная матрица лайков пользователь × фильм в двух сжатых представлениях:
+// по строкам (отсортированные id фильмов пользователя) и по столбцам (отсортированные id
+// лайкнувших фильм пользователей). Массивы заменяются копией при изменении, поэтому чтение
+// идёт без блокировки и может выполняться из нескольких потоков
+@Slf4j
+@Component
+public class LikeMatrix {
+
+    private static final String LOAD_BY_USER_QUERY = """
+            SELECT user_id, film_id
+            FROM film_likes
+            ORDER BY user_id, film_id
+            """;
+
+    private static final String LOAD_BY_FILM_QUERY = """
+            SELECT film_id, user_id
+            FROM film_likes
+            ORDER BY film_id, user_id
+            """;
+
+    private final JdbcTemplate jdbc;
+    private final boolean enabled;
+    private final Map<Long, long[]> filmsByUser = new ConcurrentHashMap<>();
+    private final Map<Long, long[]> usersByFilm = new ConcurrentHashMap<>();
+    private final Lock writeLock = new ReentrantLock();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public LikeMatrix(JdbcTemplate jdbc,
+                      @Value("${filmorate.recommendations.in-memory:true}") boolean enabled) {
+        this.jdbc = jdbc;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        IdArrays.Builder byUser = new IdArrays.Builder();
+        jdbc.query(LOAD_BY_USER_QUERY, (RowCallbackHandler) rs -> byUser.add(rs.getLong("user_id"), rs.getLong("film_id")));
+        IdArrays.Builder byFilm = new IdArrays.Builder();
+        jdbc.query(LOAD_BY_FILM_QUERY, (RowCallbackHandler) rs -> byFilm.add(rs.getLong("film_id"), rs.getLong("user_id")));
+        writeLock.lock();
+        try {
+            filmsByUser.clear();
+            filmsByUser.putAll(byUser.build());
+            usersByFilm.clear();
+            usersByFilm.putAll(byFilm.build());
+        } finally {
+            writeLock.unlock();
+        }
+        log.info("Матрица лайков загружена, пользователей: {}, фильмов: {}, лайков: {}",
+                filmsByUser.size(), usersByFilm.size(), byUser.getPairs());
+        listeners.forEach(Listener::matrixReloaded);
+        IndexUpdates.onRollback(this::load);
+    }
+
+    public long[] getFilmIds(long userId) {
+        return filmsByUser.getOrDefault(userId, IdArrays.EMPTY);
+    }
+
+    public long[] getUserIds(long filmId) {
+        return usersByFilm.getOrDefault(filmId, IdArrays.EMPTY);
+    }
+
+    public void addLike(long filmId, long userId) {
+        if (!enabled) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            filmsByUser.merge(userId, new long[]{filmId}, (filmIds, added) -> IdArrays.with(filmIds, filmId));
+            usersByFilm.merge(filmId, new long[]{userId}, (userIds, added) -> IdArrays.with(userIds, userId));
+        } finally {
+            writeLock.unlock();
+        }
+        listeners.forEach(listener -> listener.likesChanged(userId));
+    }
+
+    public void removeLike(long filmId, long userId) {
+        if (!enabled) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            filmsByUser.computeIfPresent(userId, (id, filmIds) -> nullIfEmpty(IdArrays.without(filmIds, filmId)));
+            usersByFilm.computeIfPresent(filmId, (id, userIds) -> nullIfEmpty(IdArrays.without(userIds, userId)));
+        } finally {
+            writeLock.unlock();
+        }
+        listeners.forEach(listener -> listener.likesChanged(userId));
+    }
+
+    // Лайки удалённого пользователя удаляются каскадом
+    public void removeUser(long userId) {
+        if (!enabled) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            long[] filmIds = filmsByUser.remove(userId);
+            if (filmIds != null) {
+                for (long filmId : filmIds) {
+                    usersByFilm.computeIfPresent(filmId,
+                            (id, userIds) -> nullIfEmpty(IdArrays.without(userIds, userId)));
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        listeners.forEach(listener -> listener.likesChanged(userId));
+        IndexUpdates.onRollback(this::load);
+    }
+
+    // Лайки удалённого фильма удаляются каскадом
+    public void removeFilm(long filmId) {
+        if (!enabled) {
+            return;
+        }
+        long[] userIds;
+        writeLock.lock();
+        try {
+            userIds = usersByFilm.remove(filmId);
+            if (userIds != null) {
+                for (long userId : userIds) {
+                    filmsByUser.computeIfPresent(userId,
+                            (id, filmIds) -> nullIfEmpty(IdArrays.without(filmIds, filmId)));
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        if (userIds != null) {
+            for (long userId : userIds) {
+                listeners.forEach(listener -> listener.likesChanged(userId));
+            }
+        }
+        IndexUpdates.onRollback(this::load);
+    }
+
+    private static long[] nullIfEmpty(long[] ids) {
+        return ids.length == 0 ? null : ids;
+    }
+
+    // Уведомления вызываются после снятия блокировки, в потоке, изменившем матрицу
+    public interface Listener {
+
+        void likesChanged(long userId);
+
+        void matrixReloaded();
+    }
+}
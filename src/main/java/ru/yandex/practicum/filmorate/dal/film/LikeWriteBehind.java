@@ -0,0 +1,184 @@
+package ru.yandex.practicum.filmorate.dal.film;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ServiceUnavailableException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Slf4j
+@Component
+public class LikeWriteBehind {
+
+    private final FilmStorage filmStorage;
+    private final boolean enabled;
+    private final int capacity;
+    private final int maxBatchSize;
+    private final Duration maxDelay;
+    private final Duration offerTimeout;
+
+    // Для каждой пары (фильм, пользователь) хранится только последнее действие:
+    // лайк и отмена лайка, пришедшие до записи, схлопываются в одну операцию
+    private final Map<Key, Boolean> pending = new LinkedHashMap<>();
+    // Число ожидающих записи изменений по пользователю, чтобы flushUser не перебирал всю очередь
+    private final Map<Long, Integer> pendingByUser = new HashMap<>();
+    private final Lock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition flushRequested = lock.newCondition();
+    private final Object flushMonitor = new Object();
+    private volatile boolean running;
+    private Thread flusher;
+
+    public LikeWriteBehind(FilmStorage filmStorage,
+                           @Value("${filmorate.likes.write-behind.enabled:false}") boolean enabled,
+                           @Value("${filmorate.likes.write-behind.capacity:100000}") int capacity,
+                           @Value("${filmorate.likes.write-behind.max-batch-size:1000}") int maxBatchSize,
+                           @Value("${filmorate.likes.write-behind.max-delay:PT0.2S}") Duration maxDelay,
+                           @Value("${filmorate.likes.write-behind.offer-timeout:PT1S}") Duration offerTimeout) {
+        this.filmStorage = filmStorage;
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelay = maxDelay;
+        this.offerTimeout = offerTimeout;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        flusher = new Thread(this::runFlusher, "likes-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+        log.info("Отложенная запись лайков включена, окно записи {}", maxDelay);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        running = false;
+        flusher.interrupt();
+        flusher.join();
+        flush();
+    }
+
+    public void enqueue(long filmId, long userId, boolean liked) {
+        Key key = new Key(filmId, userId);
+        lock.lock();
+        try {
+            long nanos = offerTimeout.toNanos();
+            while (!pending.containsKey(key) && pending.size() >= capacity) {
+                if (nanos <= 0) {
+                    throw new ServiceUnavailableException("Очередь лайков переполнена, повторите запрос позже");
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            if (pending.put(key, liked) == null) {
+                pendingByUser.merge(userId, 1, Integer::sum);
+            }
+            if (pending.size() >= maxBatchSize) {
+                flushRequested.signal();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Запрос прерван при ожидании места в очереди лайков");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Чтение собственных записей: перед запросом, зависящим от лайков пользователя,
+    // его ещё не записанные изменения сбрасываются в базу. Проверка идёт под flushMonitor: изменения
+    // пользователя могут быть уже убраны из очереди пакетом, который фоновый поток ещё пишет
+    public void flushUser(long userId) {
+        synchronized (flushMonitor) {
+            boolean hasPending;
+            lock.lock();
+            try {
+                hasPending = pendingByUser.containsKey(userId);
+            } finally {
+                lock.unlock();
+            }
+            if (hasPending) {
+                flush();
+            }
+        }
+    }
+
+    public int flush() {
+        synchronized (flushMonitor) {
+            List<LikeChange> changes;
+            lock.lock();
+            try {
+                if (pending.isEmpty()) {
+                    return 0;
+                }
+                changes = new ArrayList<>(pending.size());
+                pending.forEach((key, liked) -> changes.add(new LikeChange(key.filmId(), key.userId(), liked)));
+                pending.clear();
+                pendingByUser.clear();
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            write(changes);
+            return changes.size();
+        }
+    }
+
+    private void write(List<LikeChange> changes) {
+        try {
+            filmStorage.applyLikeChanges(changes);
+            log.debug("Записано изменений лайков: {}", changes.size());
+        } catch (DataAccessException e) {
+            log.warn("Не удалось записать пакет из {} изменений лайков, записываем по одному", changes.size(), e);
+            for (LikeChange change : changes) {
+                try {
+                    filmStorage.applyLikeChanges(List.of(change));
+                } catch (DataAccessException ex) {
+                    log.error("Изменение лайка {} отброшено: {}", change, ex.getMessage());
+                }
+            }
+        }
+    }
+
+    private void runFlusher() {
+        while (running) {
+            lock.lock();
+            try {
+                if (pending.size() < maxBatchSize) {
+                    flushRequested.await(maxDelay.toNanos(), TimeUnit.NANOSECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                log.error("Ошибка при записи лайков", e);
+            }
+        }
+    }
+
+    private record Key(long filmId, long userId) {
+    }
+}
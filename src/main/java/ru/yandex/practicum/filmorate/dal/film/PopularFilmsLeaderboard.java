@@ -0,0 +1,297 @@
+package ru.yandex.practicum.filmorate.dal.film;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dal.IndexUpdates;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Рейтинг фильмов по лайкам: общий и отдельные по жанру, рейтингу MPA и году выпуска.
+// Фильм входит в рейтинги всех своих жанров, при изменении лайков или атрибутов
+// он переставляется во всех рейтингах сразу
+@Slf4j
+@Component
+public class PopularFilmsLeaderboard {
+
+    private static final String LOAD_QUERY = """
+            SELECT id, name, like_count, rating_id, release_date
+            FROM films
+            """;
+
+    private static final String LOAD_GENRES_QUERY = """
+            SELECT film_id, genre_id
+            FROM film_genres
+            """;
+
+    private static final Comparator<Entry> RANKING_ORDER = Comparator.comparingLong(Entry::likes).reversed()
+            .thenComparing(Entry::name)
+            .thenComparingLong(Entry::filmId);
+
+    private final JdbcTemplate jdbc;
+    private final boolean enabled;
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final NavigableSet<Entry> ranking = new TreeSet<>(RANKING_ORDER);
+    private final Map<Integer, NavigableSet<Entry>> rankingByGenre = new HashMap<>();
+    private final Map<Integer, NavigableSet<Entry>> rankingByMpa = new HashMap<>();
+    private final Map<Integer, NavigableSet<Entry>> rankingByYear = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public PopularFilmsLeaderboard(JdbcTemplate jdbc,
+                                   @Value("${filmorate.popular-films.in-memory:true}") boolean enabled) {
+        this.jdbc = jdbc;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        Map<Long, Set<Integer>> genresByFilm = new HashMap<>();
+        jdbc.query(LOAD_GENRES_QUERY, (RowCallbackHandler) rs -> genresByFilm
+                .computeIfAbsent(rs.getLong("film_id"), filmId -> new HashSet<>())
+                .add(rs.getInt("genre_id")));
+        List<Entry> loaded = jdbc.query(LOAD_QUERY, (rs, rowNum) -> {
+            long filmId = rs.getLong("id");
+            Date releaseDate = rs.getDate("release_date");
+            return new Entry(
+                    filmId,
+                    rs.getString("name"),
+                    rs.getLong("like_count"),
+                    rs.getInt("rating_id"),
+                    year(releaseDate == null ? null : releaseDate.toLocalDate()),
+                    Set.copyOf(genresByFilm.getOrDefault(filmId, Set.of())));
+        });
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            ranking.clear();
+            rankingByGenre.clear();
+            rankingByMpa.clear();
+            rankingByYear.clear();
+            loaded.forEach(this::put);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Рейтинг популярных фильмов загружен, фильмов: {}, жанров: {}, рейтингов MPA: {}, лет: {}",
+                loaded.size(), rankingByGenre.size(), rankingByMpa.size(), rankingByYear.size());
+        IndexUpdates.onRollback(this::load);
+    }
+
+    public List<Long> getTopFilmIds(int count) {
+        return getTopFilmIds(count, null, null, null);
+    }
+
+    // Обходится самый маленький из подходящих рейтингов, остальные условия проверяются по записи
+    public List<Long> getTopFilmIds(int count, Integer genreId, Integer mpaId, Integer year) {
+        lock.readLock().lock();
+        try {
+            NavigableSet<Entry> source = ranking;
+            if (genreId != null) {
+                source = smaller(source, rankingByGenre.get(genreId));
+            }
+            if (mpaId != null) {
+                source = smaller(source, rankingByMpa.get(mpaId));
+            }
+            if (year != null) {
+                source = smaller(source, rankingByYear.get(year));
+            }
+            List<Long> filmIds = new ArrayList<>(Math.min(Math.max(count, 0), source.size()));
+            Iterator<Entry> iterator = source.iterator();
+            while (filmIds.size() < count && iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if ((genreId == null || entry.genreIds().contains(genreId))
+                        && (mpaId == null || entry.mpaId() == mpaId)
+                        && (year == null || entry.year() == year)) {
+                    filmIds.add(entry.filmId());
+                }
+            }
+            return filmIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Для фильмов, которых нет в рейтинге, — 0
+    public long[] getLikes(long[] filmIds) {
+        long[] likes = new long[filmIds.length];
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < filmIds.length; i++) {
+                Entry entry = entries.get(filmIds[i]);
+                likes[i] = entry == null ? 0 : entry.likes();
+            }
+            return likes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Обход фильмов по убыванию лайков, пока visitor возвращает true
+    public void forEachByLikes(Visitor visitor) {
+        lock.readLock().lock();
+        try {
+            for (Entry entry : ranking) {
+                if (!visitor.visit(entry.filmId(), entry.likes())) {
+                    return;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void addFilm(long filmId, String name, int mpaId, LocalDate releaseDate, Set<Integer> genreIds) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            put(new Entry(filmId, name, 0, mpaId, year(releaseDate), Set.copyOf(genreIds)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Возвращает запись до изменения; лайки и жанры не меняются
+    public Optional<Entry> updateFilm(long filmId, String name, int mpaId, int year) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = entries.get(filmId);
+            if (entry == null) {
+                return Optional.empty();
+            }
+            unlink(entry);
+            put(new Entry(filmId, name, entry.likes(), mpaId, year, entry.genreIds()));
+            return Optional.of(entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void changeGenres(long filmId, Collection<Integer> addedGenreIds, Collection<Integer> removedGenreIds) {
+        if (addedGenreIds.isEmpty() && removedGenreIds.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Entry entry = entries.get(filmId);
+            if (entry == null) {
+                return;
+            }
+            Set<Integer> genreIds = new HashSet<>(entry.genreIds());
+            genreIds.removeAll(removedGenreIds);
+            genreIds.addAll(addedGenreIds);
+            unlink(entry);
+            put(new Entry(filmId, entry.name(), entry.likes(), entry.mpaId(), entry.year(), Set.copyOf(genreIds)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Optional<Entry> removeFilm(long filmId) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = entries.get(filmId);
+            if (entry != null) {
+                unlink(entry);
+            }
+            return Optional.ofNullable(entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void restoreFilm(Entry entry) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Entry current = entries.get(entry.filmId());
+            if (current != null) {
+                unlink(current);
+            }
+            put(entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void changeLikes(long filmId, long delta) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = entries.get(filmId);
+            if (entry == null) {
+                return;
+            }
+            unlink(entry);
+            put(new Entry(filmId, entry.name(), Math.max(0, entry.likes() + delta),
+                    entry.mpaId(), entry.year(), entry.genreIds()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public static int year(LocalDate releaseDate) {
+        return releaseDate == null ? 0 : releaseDate.getYear();
+    }
+
+    private void put(Entry entry) {
+        entries.put(entry.filmId(), entry);
+        ranking.add(entry);
+        for (int genreId : entry.genreIds()) {
+            rankingByGenre.computeIfAbsent(genreId, key -> new TreeSet<>(RANKING_ORDER)).add(entry);
+        }
+        if (entry.mpaId() != 0) {
+            rankingByMpa.computeIfAbsent(entry.mpaId(), key -> new TreeSet<>(RANKING_ORDER)).add(entry);
+        }
+        if (entry.year() != 0) {
+            rankingByYear.computeIfAbsent(entry.year(), key -> new TreeSet<>(RANKING_ORDER)).add(entry);
+        }
+    }
+
+    private void unlink(Entry entry) {
+        entries.remove(entry.filmId());
+        ranking.remove(entry);
+        for (int genreId : entry.genreIds()) {
+            removeFromPartition(rankingByGenre, genreId, entry);
+        }
+        removeFromPartition(rankingByMpa, entry.mpaId(), entry);
+        removeFromPartition(rankingByYear, entry.year(), entry);
+    }
+
+    private static void removeFromPartition(Map<Integer, NavigableSet<Entry>> partitions, int key, Entry entry) {
+        NavigableSet<Entry> partition = partitions.get(key);
+        if (partition != null && partition.remove(entry) && partition.isEmpty()) {
+            partitions.remove(key);
+        }
+    }
+
+    private static NavigableSet<Entry> smaller(NavigableSet<Entry> current, NavigableSet<Entry> partition) {
+        if (partition == null) {
+            return Collections.emptyNavigableSet();
+        }
+        return partition.size() < current.size() ? partition : current;
+    }
+
+    // mpaId и year равны 0, если рейтинг или дата выпуска не заданы
+    public record Entry(long filmId, String name, long likes, int mpaId, int year, Set<Integer> genreIds) {
+    }
+
+    public interface Visitor {
+
+        boolean visit(long filmId, long likes);
+    }
+}
@@ -0,0 +1,241 @@
+package ru.yandex.practicum.filmorate.dal.film;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dal.IndexUpdates;
+import ru.yandex.practicum.filmorate.model.TrendingPeriod;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Фильмы, набирающие лайки: для каждого периода (час, день, неделя) у фильма есть кольцевой
+// буфер из BUCKETS корзин с числом лайков. Вклад корзины затухает экспоненциально с её возрастом,
+// за окно периода проходит halfLivesPerWindow периодов полураспада. Рейтинги пересчитываются
+// по расписанию, запрос только берёт начало готового списка
+@Slf4j
+@Component
+public class TrendingFilms {
+
+    private static final String LOAD_QUERY = """
+            SELECT film_id, created_at
+            FROM film_likes
+            WHERE created_at > ?
+            """;
+
+    private static final int BUCKETS = 24;
+    private static final TrendingPeriod[] PERIODS = TrendingPeriod.values();
+    private static final long[] BUCKET_MILLIS = Arrays.stream(PERIODS)
+            .mapToLong(period -> period.getWindow().toMillis() / BUCKETS)
+            .toArray();
+    private static final TrendingPeriod LONGEST_PERIOD = PERIODS[PERIODS.length - 1];
+
+    private static final Comparator<Score> BY_SCORE = Comparator.comparingDouble(Score::score)
+            .thenComparing(Comparator.comparingLong(Score::filmId).reversed());
+
+    private final JdbcTemplate jdbc;
+    private final boolean enabled;
+    private final int maxResults;
+    private final double halfLivesPerWindow;
+    private final double[] weights = new double[BUCKETS];
+    private final Map<Long, Counter> counters = new ConcurrentHashMap<>();
+    private volatile Map<TrendingPeriod, List<Long>> rankings = Map.of();
+
+    public TrendingFilms(JdbcTemplate jdbc,
+                         @Value("${filmorate.trending.in-memory:true}") boolean enabled,
+                         @Value("${filmorate.pagination.max-limit:100}") int maxResults,
+                         @Value("${filmorate.trending.half-lives-per-window:3}") double halfLivesPerWindow) {
+        this.jdbc = jdbc;
+        this.enabled = enabled;
+        this.maxResults = maxResults;
+        this.halfLivesPerWindow = halfLivesPerWindow;
+        for (int age = 0; age < BUCKETS; age++) {
+            weights[age] = Math.pow(2, -age * halfLivesPerWindow / BUCKETS);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public double getHalfLivesPerWindow() {
+        return halfLivesPerWindow;
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Map<Long, Counter> loaded = new HashMap<>();
+        int[] likes = {0};
+        jdbc.query(LOAD_QUERY, (RowCallbackHandler) rs -> {
+            loaded.computeIfAbsent(rs.getLong("film_id"), filmId -> new Counter(now))
+                    .add(rs.getTimestamp("created_at").getTime(), 1, now);
+            likes[0]++;
+        }, new Timestamp(now - LONGEST_PERIOD.getWindow().toMillis()));
+        counters.clear();
+        counters.putAll(loaded);
+        log.info("Счётчики трендов загружены, фильмов: {}, лайков: {}", loaded.size(), likes[0]);
+        refresh();
+        IndexUpdates.onRollback(this::load);
+    }
+
+    public List<Long> getTrendingFilmIds(TrendingPeriod period, int count) {
+        List<Long> filmIds = rankings.getOrDefault(period, List.of());
+        return filmIds.subList(0, Math.min(Math.max(count, 0), filmIds.size()));
+    }
+
+    public void addLike(long filmId, Instant likedAt) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        counters.compute(filmId, (id, counter) -> {
+            Counter result = counter == null ? new Counter(now) : counter;
+            result.add(likedAt.toEpochMilli(), 1, now);
+            return result;
+        });
+    }
+
+    public void removeLike(long filmId, Instant likedAt) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        counters.computeIfPresent(filmId, (id, counter) -> {
+            counter.add(likedAt.toEpochMilli(), -1, now);
+            return counter;
+        });
+    }
+
+    public void removeFilm(long filmId) {
+        if (!enabled) {
+            return;
+        }
+        Counter removed = counters.remove(filmId);
+        if (removed != null) {
+            IndexUpdates.onRollback(() -> counters.putIfAbsent(filmId, removed));
+        }
+    }
+
+    // Лайки, поставленные после пересчёта, попадут в рейтинг при следующем пересчёте.
+    // Фильмы без лайков за самый длинный период удаляются из счётчиков
+    @Scheduled(initialDelayString = "${filmorate.trending.refresh-interval:PT1M}",
+            fixedDelayString = "${filmorate.trending.refresh-interval:PT1M}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<PriorityQueue<Score>> tops = new ArrayList<>(PERIODS.length);
+        for (int i = 0; i < PERIODS.length; i++) {
+            tops.add(new PriorityQueue<>(BY_SCORE));
+        }
+        for (Map.Entry<Long, Counter> entry : counters.entrySet()) {
+            long filmId = entry.getKey();
+            double[] scores = entry.getValue().scores(now, weights);
+            if (scores[PERIODS.length - 1] == 0) {
+                counters.computeIfPresent(filmId, (id, counter) -> counter.isEmpty(now) ? null : counter);
+                continue;
+            }
+            for (int i = 0; i < PERIODS.length; i++) {
+                if (scores[i] > 0) {
+                    offer(tops.get(i), new Score(filmId, scores[i]));
+                }
+            }
+        }
+        Map<TrendingPeriod, List<Long>> refreshed = new EnumMap<>(TrendingPeriod.class);
+        for (int i = 0; i < PERIODS.length; i++) {
+            List<Score> top = new ArrayList<>(tops.get(i));
+            top.sort(BY_SCORE.reversed());
+            refreshed.put(PERIODS[i], top.stream().map(Score::filmId).toList());
+        }
+        rankings = refreshed;
+    }
+
+    private void offer(PriorityQueue<Score> top, Score score) {
+        if (top.size() < maxResults) {
+            top.add(score);
+        } else if (BY_SCORE.compare(score, top.peek()) > 0) {
+            top.poll();
+            top.add(score);
+        }
+    }
+
+    private static long bucket(int period, long epochMillis) {
+        return epochMillis / BUCKET_MILLIS[period];
+    }
+
+    // Лайк, удалённый из корзины, которая уже вышла из окна периода, в этом периоде не учитывается
+    private static final class Counter {
+
+        private final int[][] counts = new int[PERIODS.length][BUCKETS];
+        private final long[] lastBuckets = new long[PERIODS.length];
+
+        private Counter(long now) {
+            for (int period = 0; period < PERIODS.length; period++) {
+                lastBuckets[period] = bucket(period, now);
+            }
+        }
+
+        synchronized void add(long likedAt, int delta, long now) {
+            for (int period = 0; period < PERIODS.length; period++) {
+                long bucket = bucket(period, likedAt);
+                advance(period, Math.max(bucket(period, now), bucket));
+                if (bucket > lastBuckets[period] - BUCKETS) {
+                    int slot = (int) Math.floorMod(bucket, BUCKETS);
+                    counts[period][slot] = Math.max(0, counts[period][slot] + delta);
+                }
+            }
+        }
+
+        synchronized double[] scores(long now, double[] weights) {
+            double[] scores = new double[PERIODS.length];
+            for (int period = 0; period < PERIODS.length; period++) {
+                long current = bucket(period, now);
+                advance(period, current);
+                for (int age = 0; age < BUCKETS; age++) {
+                    scores[period] += counts[period][(int) Math.floorMod(current - age, BUCKETS)] * weights[age];
+                }
+            }
+            return scores;
+        }
+
+        synchronized boolean isEmpty(long now) {
+            for (int period = 0; period < PERIODS.length; period++) {
+                advance(period, bucket(period, now));
+                for (int count : counts[period]) {
+                    if (count != 0) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        // Корзины, через которые прошло время с прошлого обращения, обнуляются
+        private void advance(int period, long current) {
+            long last = lastBuckets[period];
+            if (current <= last) {
+                return;
+            }
+            for (long bucket = Math.max(last + 1, current - BUCKETS + 1); bucket <= current; bucket++) {
+                counts[period][(int) Math.floorMod(bucket, BUCKETS)] = 0;
+            }
+            lastBuckets[period] = current;
+        }
+    }
+
+    public record Like(long filmId, Instant likedAt) {
+    }
+
+    private record Score(long filmId, double score) {
+    }
+}
@@ -0,0 +1,126 @@
+package ru.yandex.practicum.filmorate.dal.user;
+
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.dal.EntityCache;
+import ru.yandex.practicum.filmorate.dal.EntityVersions;
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
+import ru.yandex.practicum.filmorate.model.FriendshipStatus;
+import ru.yandex.practicum.filmorate.model.User;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+@Primary
+@Repository
+public class CachingUserStorage implements UserStorage {
+
+    private final UserDbStorage userDbStorage;
+    private final EntityCache<User> userCache;
+    private final EntityVersions versions;
+
+    public CachingUserStorage(UserDbStorage userDbStorage, EntityCache<User> userCache, EntityVersions versions) {
+        this.userDbStorage = userDbStorage;
+        this.userCache = userCache;
+        this.versions = versions;
+    }
+
+    @Override
+    public Collection<User> getAllUsers() {
+        return userDbStorage.getAllUsers();
+    }
+
+    @Override
+    public List<User> getUsersPage(long afterId, int limit) {
+        return userDbStorage.getUsersPage(afterId, limit);
+    }
+
+    @Override
+    public void streamAllUsers(Consumer<User> consumer) {
+        userDbStorage.streamAllUsers(consumer);
+    }
+
+    @Override
+    public User createUser(User user) {
+        return userDbStorage.createUser(user);
+    }
+
+    @Override
+    public User updateUser(User newUser) {
+        try {
+            return userDbStorage.updateUser(newUser);
+        } finally {
+            userCache.invalidate(newUser.getId());
+            versions.userChanged(newUser.getId());
+        }
+    }
+
+    @Override
+    public void removeUser(long userId) {
+        try {
+            userDbStorage.removeUser(userId);
+        } finally {
+            userCache.invalidate(userId);
+            versions.userChanged(userId);
+            // Вместе с пользователем удаляются его лайки
+            versions.catalogChanged();
+        }
+    }
+
+    @Override
+    public Optional<User> getUserById(long userId) {
+        return userCache.get(userId, userDbStorage::getUserById);
+    }
+
+    @Override
+    public Optional<User> getUserByEmail(String userEmail) {
+        return userDbStorage.getUserByEmail(userEmail);
+    }
+
+    @Override
+    public Optional<User> getUserByLogin(String userLogin) {
+        return userDbStorage.getUserByLogin(userLogin);
+    }
+
+    @Override
+    public Set<Long> getExistingUserIds(long firstUserId, long secondUserId) {
+        return userDbStorage.getExistingUserIds(firstUserId, secondUserId);
+    }
+
+    @Override
+    public void addFriend(long inviterId, long inviteeId) {
+        userDbStorage.addFriend(inviterId, inviteeId);
+    }
+
+    @Override
+    public boolean removeFriend(long userId, long friendId) {
+        return userDbStorage.removeFriend(userId, friendId);
+    }
+
+    @Override
+    public void updateFriendshipStatus(long userId, long friendId, FriendshipStatus newStatus) {
+        userDbStorage.updateFriendshipStatus(userId, friendId, newStatus);
+    }
+
+    @Override
+    public List<User> getAllFriends(long userId) {
+        return userDbStorage.getAllFriends(userId);
+    }
+
+    @Override
+    public List<User> getFriendsPage(long userId, long afterId, int limit) {
+        return userDbStorage.getFriendsPage(userId, afterId, limit);
+    }
+
+    @Override
+    public List<User> getCommonFriends(long inviterId, long inviteeId) {
+        return userDbStorage.getCommonFriends(inviterId, inviteeId);
+    }
+
+    @Override
+    public List<FriendSuggestion> getFriendSuggestions(long userId, int limit) {
+        return userDbStorage.getFriendSuggestions(userId, limit);
+    }
+}
@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.dal.user;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dal.IdArrays;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+// Рекомендации друзей по числу общих друзей, считаются по графу дружбы.
+// Готовые списки хранятся для активных пользователей (запрашивавших рекомендации недавно)
+// и пересчитываются в фоне при изменении дружбы, до пересчёта отдаётся предыдущий список
+@Component
+public class FriendSuggestionIndex implements FriendshipGraph.Listener {
+
+    private static final Comparator<Candidate> BY_MUTUAL_FRIENDS = Comparator
+            .comparingInt(Candidate::mutualFriends).reversed()
+            .thenComparingLong(Candidate::userId);
+
+    private final FriendshipGraph friendshipGraph;
+    private final int maxNeighbours;
+    private final int maxResults;
+    private final LoadingCache<Long, List<Candidate>> suggestions;
+
+    public FriendSuggestionIndex(FriendshipGraph friendshipGraph,
+                                 @Value("${filmorate.friend-suggestions.max-neighbours:500}") int maxNeighbours,
+                                 @Value("${filmorate.pagination.max-limit:100}") int maxResults,
+                                 @Value("${filmorate.friend-suggestions.active-users:10000}") long activeUsers,
+                                 @Value("${filmorate.friend-suggestions.active-ttl:PT30M}") Duration activeTtl) {
+        this.friendshipGraph = friendshipGraph;
+        this.maxNeighbours = maxNeighbours;
+        this.maxResults = maxResults;
+        this.suggestions = Caffeine.newBuilder()
+                .maximumSize(activeUsers)
+                .expireAfterAccess(activeTtl)
+                .build(this::compute);
+        friendshipGraph.addListener(this);
+    }
+
+    public List<Candidate> getSuggestions(long userId, int limit) {
+        List<Candidate> candidates = suggestions.get(userId);
+        return candidates.subList(0, Math.min(limit, candidates.size()));
+    }
+
+    // Изменился список друзей userId: затронуты сам пользователь и те, у кого он в друзьях
+    @Override
+    public void friendsChanged(long userId) {
+        ForkJoinPool.commonPool().execute(() -> {
+            for (Long activeUserId : suggestions.asMap().keySet()) {
+                if (activeUserId == userId || IdArrays.contains(friendshipGraph.getFriendIds(activeUserId), userId)) {
+                    suggestions.refresh(activeUserId);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void graphReloaded() {
+        suggestions.invalidateAll();
+    }
+
+    // Друзья друзей собираются в один массив, после сортировки число общих друзей кандидата
+    // равно длине серии его id. У «хабов» раскрывается не больше maxNeighbours друзей
+    List<Candidate> compute(long userId) {
+        long[] friendIds = friendshipGraph.getFriendIds(userId);
+        long[] sampledFriendIds = IdArrays.sample(friendIds, maxNeighbours);
+        long[] reached = new long[0];
+        int size = 0;
+        for (long friendId : sampledFriendIds) {
+            long[] neighbours = IdArrays.sample(friendshipGraph.getFriendIds(friendId), maxNeighbours);
+            if (size + neighbours.length > reached.length) {
+                reached = Arrays.copyOf(reached, Math.max(size + neighbours.length, reached.length * 2));
+            }
+            System.arraycopy(neighbours, 0, reached, size, neighbours.length);
+            size += neighbours.length;
+        }
+        Arrays.sort(reached, 0, size);
+
+        List<Candidate> candidates = new ArrayList<>();
+        int runStart = 0;
+        for (int i = 1; i <= size; i++) {
+            if (i < size && reached[i] == reached[runStart]) {
+                continue;
+            }
+            long candidateId = reached[runStart];
+            if (candidateId != userId && !IdArrays.contains(friendIds, candidateId)) {
+                candidates.add(new Candidate(candidateId, i - runStart));
+            }
+            runStart = i;
+        }
+        candidates.sort(BY_MUTUAL_FRIENDS);
+        return List.copyOf(candidates.subList(0, Math.min(maxResults, candidates.size())));
+    }
+
+    public record Candidate(long userId, int mutualFriends) {
+    }
+}
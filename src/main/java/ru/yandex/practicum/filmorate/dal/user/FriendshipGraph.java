@@ -0,0 +1,159 @@
+package ru.yandex.practicum.filmorate.dal.user;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dal.IdArrays;
+import ru.yandex.practicum.filmorate.dal.IndexUpdates;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Граф подтверждённой дружбы: для каждого пользователя отсортированный массив id его друзей.
+// Массивы не изменяются после публикации (при изменении заменяются копией),
+// поэтому полученный массив можно читать без блокировки
+@Slf4j
+@Component
+public class FriendshipGraph {
+
+    private static final String LOAD_QUERY = """
+            SELECT inviter_id, invitee_id
+            FROM friendship
+            WHERE status = 'APPROVED'
+            ORDER BY inviter_id, invitee_id
+            """;
+
+    private final JdbcTemplate jdbc;
+    private final boolean enabled;
+    private final Map<Long, long[]> friends = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public FriendshipGraph(JdbcTemplate jdbc,
+                           @Value("${filmorate.friendship-graph.in-memory:true}") boolean enabled) {
+        this.jdbc = jdbc;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        IdArrays.Builder builder = new IdArrays.Builder();
+        jdbc.query(LOAD_QUERY, (RowCallbackHandler) rs -> builder.add(rs.getLong("inviter_id"), rs.getLong("invitee_id")));
+        Map<Long, long[]> loaded = builder.build();
+        lock.writeLock().lock();
+        try {
+            friends.clear();
+            friends.putAll(loaded);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Граф дружбы загружен, пользователей: {}, связей: {}", loaded.size(), builder.getPairs());
+        listeners.forEach(Listener::graphReloaded);
+        IndexUpdates.onRollback(this::load);
+    }
+
+    public long[] getFriendIds(long userId) {
+        lock.readLock().lock();
+        try {
+            return friends.getOrDefault(userId, IdArrays.EMPTY);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long[] getCommonFriendIds(long firstUserId, long secondUserId) {
+        return IdArrays.intersect(getFriendIds(firstUserId), getFriendIds(secondUserId));
+    }
+
+    public void addFriend(long userId, long friendId) {
+        IndexUpdates.apply(() -> add(userId, friendId), () -> remove(userId, friendId));
+    }
+
+    public void removeFriend(long userId, long friendId) {
+        if (remove(userId, friendId)) {
+            IndexUpdates.onRollback(() -> add(userId, friendId));
+        }
+    }
+
+    // Дружба удалённого пользователя удаляется каскадом в обе стороны
+    public void removeUser(long userId) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            friends.remove(userId);
+            friends.replaceAll((id, friendIds) -> IdArrays.without(friendIds, userId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        listeners.forEach(Listener::graphReloaded);
+        IndexUpdates.onRollback(this::load);
+    }
+
+    private void add(long userId, long friendId) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            long[] friendIds = friends.getOrDefault(userId, IdArrays.EMPTY);
+            long[] updated = IdArrays.with(friendIds, friendId);
+            if (updated == friendIds) {
+                return;
+            }
+            friends.put(userId, updated);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        listeners.forEach(listener -> listener.friendsChanged(userId));
+    }
+
+    private boolean remove(long userId, long friendId) {
+        if (!enabled) {
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            long[] friendIds = friends.getOrDefault(userId, IdArrays.EMPTY);
+            long[] updated = IdArrays.without(friendIds, friendId);
+            if (updated == friendIds) {
+                return false;
+            }
+            if (updated.length == 0) {
+                friends.remove(userId);
+            } else {
+                friends.put(userId, updated);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        listeners.forEach(listener -> listener.friendsChanged(userId));
+        return true;
+    }
+
+    // Уведомления вызываются после снятия блокировки, в потоке, изменившем граф
+    public interface Listener {
+
+        void friendsChanged(long userId);
+
+        void graphReloaded();
+    }
+}
@@ -1,20 +1,38 @@
 package ru.yandex.practicum.filmorate.dal.user;
 
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.InternalServerException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import ru.yandex.practicum.filmorate.dal.BaseDbStorage;
+import ru.yandex.practicum.filmorate.dal.IdFilter;
+import ru.yandex.practicum.filmorate.dal.IndexUpdates;
+import ru.yandex.practicum.filmorate.dal.film.LikeMatrix;
+import ru.yandex.practicum.filmorate.dal.film.PopularFilmsLeaderboard;
+import ru.yandex.practicum.filmorate.dal.film.TrendingFilms;
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
 import ru.yandex.practicum.filmorate.model.FriendshipStatus;
 import ru.yandex.practicum.filmorate.model.User;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Repository
 public class UserDbStorage extends BaseDbStorage<User> implements UserStorage {
 
     private static final String FIND_ALL_QUERY = "SELECT * FROM users";
 
+    private static final String FIND_PAGE_QUERY = "SELECT * FROM users WHERE id > ? ORDER BY id LIMIT ?";
+
     private static final String INSERT_QUERY = "INSERT INTO users (email, login, name, birthday)" +
             "VALUES (?, ?, ?, ?)";
 
@@ -24,16 +42,30 @@ public class UserDbStorage extends BaseDbStorage<User> implements UserStorage {
 
     private static final String FIND_BY_LOGIN_QUERY = "SELECT * FROM users WHERE login = ?";
 
+    private static final String FIND_EXISTING_IDS_QUERY = "SELECT id FROM users WHERE id IN (?, ?)";
+
     private static final String UPDATE_QUERY = "UPDATE users SET email = ?, login = ?, name = ?, birthday = ? " +
             "WHERE id = ?";
 
     private static final String REMOVE_QUERY = "DELETE FROM users WHERE id = ?";
 
+    private static final String FIND_LIKES_QUERY = "SELECT film_id, created_at FROM film_likes WHERE user_id = ?";
+
+    private static final String DECREMENT_LIKED_FILMS_LIKE_COUNT_QUERY = "UPDATE films " +
+            "SET like_count = like_count - 1 " +
+            "WHERE id IN (SELECT film_id FROM film_likes WHERE user_id = ?)";
+
     private static final String FIND_ALL_USER_FRIENDS_QUERY =
             "SELECT id AS user_id, email, login, name, birthday " +
                     "FROM users WHERE id IN " +
                     "(SELECT invitee_id FROM friendship where inviter_id = ? AND status = 'APPROVED');";
 
+    private static final String FIND_USER_FRIENDS_PAGE_QUERY =
+            "SELECT u.* FROM users AS u " +
+                    "JOIN friendship AS f ON f.invitee_id = u.id " +
+                    "WHERE f.inviter_id = ? AND f.status = 'APPROVED' AND u.id > ? " +
+                    "ORDER BY u.id LIMIT ?";
+
     private static final String FIND_ALL_COMMON_USER_FRIENDS_QUERY =
             "SELECT id AS user_id, email, login, name, birthday FROM users " +
                     "WHERE id IN (" +
@@ -45,7 +77,9 @@ public class UserDbStorage extends BaseDbStorage<User> implements UserStorage {
                     "WHERE inviter_id = ? AND status = 'APPROVED');";
 
     private static final String ADD_FRIEND_TO_USER_QUERY = "INSERT INTO friendship " +
-            "(inviter_id, invitee_id, status) VALUES (?, ?, ?)";
+            "(inviter_id, invitee_id, status) " +
+            "SELECT ?, ?, ? WHERE NOT EXISTS " +
+            "(SELECT 1 FROM friendship WHERE inviter_id = ? AND invitee_id = ?)";
 
     private static final String REMOVE_USERS_FRIEND_QUERY = "DELETE FROM friendship " +
             "WHERE inviter_id = ? and invitee_id = ?";
@@ -53,8 +87,50 @@ public class UserDbStorage extends BaseDbStorage<User> implements UserStorage {
     private static final String UPDATE_FRIENDSHIP_STATUS = "ALTER TABLE friendship " +
             "SET status = ? WHERE inviter_id = ? and invitee_id = ?";
 
-    public UserDbStorage(JdbcTemplate jdbc, RowMapper<User> mapper) {
+    private static final String STREAM_ALL_QUERY = "SELECT * FROM users ORDER BY id";
+
+    private static final String FIND_BY_IDS_QUERY = """
+            SELECT *
+            FROM users
+            WHERE id = ANY(?)
+            ORDER BY id
+            """;
+
+    private static final String FIND_FRIEND_SUGGESTIONS_QUERY = """
+            SELECT u.*, s.mutual_friends
+            FROM (SELECT f2.invitee_id AS user_id, COUNT(*) AS mutual_friends
+                  FROM friendship AS f1
+                  JOIN friendship AS f2 ON f2.inviter_id = f1.invitee_id AND f2.status = 'APPROVED'
+                  WHERE f1.inviter_id = ? AND f1.status = 'APPROVED' AND f2.invitee_id <> ?
+                    AND f2.invitee_id NOT IN (SELECT invitee_id FROM friendship
+                                              WHERE inviter_id = ? AND status = 'APPROVED')
+                  GROUP BY f2.invitee_id) AS s
+            JOIN users AS u ON u.id = s.user_id
+            ORDER BY s.mutual_friends DESC, u.id
+            LIMIT ?
+            """;
+
+    private final PopularFilmsLeaderboard leaderboard;
+    private final LikeMatrix likeMatrix;
+    private final TrendingFilms trendingFilms;
+    private final FriendshipGraph friendshipGraph;
+    private final FriendSuggestionIndex friendSuggestionIndex;
+    private final IdFilter userIdFilter;
+    private final int exportFetchSize;
+
+    public UserDbStorage(JdbcTemplate jdbc, RowMapper<User> mapper, PopularFilmsLeaderboard leaderboard,
+                         LikeMatrix likeMatrix, TrendingFilms trendingFilms,
+                         FriendshipGraph friendshipGraph, FriendSuggestionIndex friendSuggestionIndex,
+                         @Qualifier("userIdFilter") IdFilter userIdFilter,
+                         @Value("${filmorate.export.fetch-size:500}") int exportFetchSize) {
         super(jdbc, mapper);
+        this.leaderboard = leaderboard;
+        this.likeMatrix = likeMatrix;
+        this.trendingFilms = trendingFilms;
+        this.friendshipGraph = friendshipGraph;
+        this.friendSuggestionIndex = friendSuggestionIndex;
+        this.userIdFilter = userIdFilter;
+        this.exportFetchSize = exportFetchSize;
     }
 
     @Override
@@ -62,6 +138,16 @@ public class UserDbStorage extends BaseDbStorage<User> implements UserStorage {
         return findMany(FIND_ALL_QUERY);
     }
 
+    @Override
+    public List<User> getUsersPage(long afterId, int limit) {
+        return findMany(FIND_PAGE_QUERY, afterId, limit);
+    }
+
+    @Override
+    public void streamAllUsers(Consumer<User> consumer) {
+        stream(STREAM_ALL_QUERY, exportFetchSize, rs -> consumer.accept(mapper.mapRow(rs, rs.getRow())));
+    }
+
     @Override
     public User createUser(User user) {
         if (user.getName() == null || user.getName().isBlank()) {
@@ -81,6 +167,8 @@ public class UserDbStorage extends BaseDbStorage<User> implements UserStorage {
                     user.getBirthday());
             user.setId(id);
         }
+        long id = user.getId();
+        IndexUpdates.apply(() -> userIdFilter.add(id), () -> userIdFilter.remove(id));
         return user;
     }
 
@@ -98,15 +186,38 @@ public class UserDbStorage extends BaseDbStorage<User> implements UserStorage {
     }
 
     @Override
+    @Transactional
     public void removeUser(long userId) {
+        List<TrendingFilms.Like> likes = findMany(FIND_LIKES_QUERY, (rs, rowNum) -> {
+            Timestamp likedAt = rs.getTimestamp("created_at");
+            return new TrendingFilms.Like(rs.getLong("film_id"), likedAt == null ? null : likedAt.toInstant());
+        }, userId);
+        execute(DECREMENT_LIKED_FILMS_LIKE_COUNT_QUERY, userId);
         if (!delete(REMOVE_QUERY, userId)) {
             throw new InternalServerException("Не найден пользователь для удаления");
         }
+        IndexUpdates.apply(
+                () -> likes.forEach(like -> leaderboard.changeLikes(like.filmId(), -1)),
+                () -> likes.forEach(like -> leaderboard.changeLikes(like.filmId(), 1)));
+        List<TrendingFilms.Like> timedLikes = likes.stream().filter(like -> like.likedAt() != null).toList();
+        IndexUpdates.apply(
+                () -> timedLikes.forEach(like -> trendingFilms.removeLike(like.filmId(), like.likedAt())),
+                () -> timedLikes.forEach(like -> trendingFilms.addLike(like.filmId(), like.likedAt())));
+        IndexUpdates.apply(() -> userIdFilter.remove(userId), () -> userIdFilter.add(userId));
+        likeMatrix.removeUser(userId);
+        friendshipGraph.removeUser(userId);
     }
 
     @Override
     public Optional<User> getUserById(long userId) {
-        return findOne(FIND_BY_ID_QUERY, userId);
+        if (!userIdFilter.mightContain(userId)) {
+            return Optional.empty();
+        }
+        Optional<User> user = findOne(FIND_BY_ID_QUERY, userId);
+        if (user.isEmpty()) {
+            userIdFilter.recordFalsePositive();
+        }
+        return user;
     }
 
     @Override
@@ -119,21 +230,32 @@ public class UserDbStorage extends BaseDbStorage<User> implements UserStorage {
         return findOne(FIND_BY_LOGIN_QUERY, userLogin);
     }
 
+    @Override
+    public Set<Long> getExistingUserIds(long firstUserId, long secondUserId) {
+        if (!userIdFilter.mightContain(firstUserId) && !userIdFilter.mightContain(secondUserId)) {
+            return Set.of();
+        }
+        return Set.copyOf(findColumn(FIND_EXISTING_IDS_QUERY, Long.class, firstUserId, secondUserId));
+    }
+
+    // Существование пользователей проверяет внешний ключ friendship -> users,
+    // повторное добавление в друзья ничего не меняет
     @Override
     public void addFriend(long inviterId, long inviteeId) {
-        update(ADD_FRIEND_TO_USER_QUERY,
+        execute(ADD_FRIEND_TO_USER_QUERY,
                 inviterId,
                 inviteeId,
-                FriendshipStatus.APPROVED.toString());
+                FriendshipStatus.APPROVED.toString(),
+                inviterId,
+                inviteeId);
+        friendshipGraph.addFriend(inviterId, inviteeId);
     }
 
     @Override
-    public void removeFriend(long inviterId, long inviteeId) {
-        try {
-            update(REMOVE_USERS_FRIEND_QUERY, inviterId, inviteeId);
-        } catch (InternalServerException e) {
-            //do nothing
-        }
+    public boolean removeFriend(long inviterId, long inviteeId) {
+        boolean removed = delete(REMOVE_USERS_FRIEND_QUERY, inviterId, inviteeId);
+        friendshipGraph.removeFriend(inviterId, inviteeId);
+        return removed;
     }
 
     @Override
@@ -147,11 +269,67 @@ public class UserDbStorage extends BaseDbStorage<User> implements UserStorage {
 
     @Override
     public List<User> getAllFriends(long userId) {
-        return findMany(FIND_ALL_USER_FRIENDS_QUERY, userId);
+        if (!friendshipGraph.isEnabled()) {
+            return findMany(FIND_ALL_USER_FRIENDS_QUERY, userId);
+        }
+        return findUsersByIds(friendshipGraph.getFriendIds(userId), 0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<User> getFriendsPage(long userId, long afterId, int limit) {
+        if (!friendshipGraph.isEnabled()) {
+            return findMany(FIND_USER_FRIENDS_PAGE_QUERY, userId, afterId, limit);
+        }
+        long[] friendIds = friendshipGraph.getFriendIds(userId);
+        int position = Arrays.binarySearch(friendIds, afterId);
+        return findUsersByIds(friendIds, position >= 0 ? position + 1 : -position - 1, limit);
     }
 
     @Override
     public List<User> getCommonFriends(long inviterId, long inviteeId) {
-        return findMany(FIND_ALL_COMMON_USER_FRIENDS_QUERY, inviterId, inviteeId);
+        if (!friendshipGraph.isEnabled()) {
+            return findMany(FIND_ALL_COMMON_USER_FRIENDS_QUERY, inviterId, inviteeId);
+        }
+        return findUsersByIds(friendshipGraph.getCommonFriendIds(inviterId, inviteeId), 0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<FriendSuggestion> getFriendSuggestions(long userId, int limit) {
+        if (!friendshipGraph.isEnabled()) {
+            return findMany(FIND_FRIEND_SUGGESTIONS_QUERY, (rs, rowNum) -> FriendSuggestion.builder()
+                    .user(mapper.mapRow(rs, rowNum))
+                    .mutualFriends(rs.getInt("mutual_friends"))
+                    .build(), userId, userId, userId, limit);
+        }
+        List<FriendSuggestionIndex.Candidate> candidates = friendSuggestionIndex.getSuggestions(userId, limit);
+        if (candidates.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, User> mapUserIdToUser = new HashMap<>();
+        for (User user : findByIds(FIND_BY_IDS_QUERY, candidates.stream()
+                .map(FriendSuggestionIndex.Candidate::userId)
+                .toList())) {
+            mapUserIdToUser.put(user.getId(), user);
+        }
+        List<FriendSuggestion> suggestions = new ArrayList<>(candidates.size());
+        for (FriendSuggestionIndex.Candidate candidate : candidates) {
+            User user = mapUserIdToUser.get(candidate.userId());
+            if (user != null) {
+                suggestions.add(FriendSuggestion.builder()
+                        .user(user)
+                        .mutualFriends(candidate.mutualFriends())
+                        .build());
+            }
+        }
+        return suggestions;
+    }
+
+    // Пользователи загружаются одним запросом по срезу отсортированного массива id
+    private List<User> findUsersByIds(long[] userIds, int from, int limit) {
+        int to = (int) Math.min(userIds.length, (long) from + limit);
+        if (from >= to) {
+            return new ArrayList<>();
+        }
+        return findByIds(FIND_BY_IDS_QUERY, Arrays.stream(userIds, from, to).boxed().toList());
     }
 }
\ No newline at end of file
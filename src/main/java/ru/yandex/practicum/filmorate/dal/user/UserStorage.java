@@ -1,15 +1,22 @@
 package ru.yandex.practicum.filmorate.dal.user;
 
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
 import ru.yandex.practicum.filmorate.model.FriendshipStatus;
 import ru.yandex.practicum.filmorate.model.User;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface UserStorage {
 
     Collection<User> getAllUsers();
 
+    List<User> getUsersPage(long afterId, int limit);
+
+    void streamAllUsers(Consumer<User> consumer);
+
     User createUser(User user);
 
     User updateUser(User newUser);
@@ -22,13 +29,19 @@ public interface UserStorage {
 
     Optional<User> getUserByLogin(String userLogin);
 
+    Set<Long> getExistingUserIds(long firstUserId, long secondUserId);
+
     void addFriend(long inviterId, long inviteeId);
 
-    void removeFriend(long userId, long friendId);
+    boolean removeFriend(long userId, long friendId);
 
     void updateFriendshipStatus(long userId, long friendId, FriendshipStatus newStatus);
 
     List<User> getAllFriends(long userId);
 
+    List<User> getFriendsPage(long userId, long afterId, int limit);
+
     List<User> getCommonFriends(long inviterId, long inviteeId);
+
+    List<FriendSuggestion> getFriendSuggestions(long userId, int limit);
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.dto.cache;
+
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class CacheStatsResponse {
+
+    String name;
+    long size;
+    long hitCount;
+    long missCount;
+    double hitRate;
+    long evictionCount;
+}
@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.dto.film;
+
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class FilmBulkError {
+
+    int index;
+    String error;
+}
@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.dto.film;
+
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+import java.util.List;
+
+@Data
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class FilmBulkResponse {
+
+    int received;
+    int created;
+    List<FilmBulkError> errors;
+}
@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.dto.filter;
+
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class IdFilterStatsResponse {
+
+    String name;
+    boolean enabled;
+    long size;
+    long capacity;
+    long memoryBytes;
+    int tables;
+    double loadFactor;
+    double expectedFalsePositiveRate;
+    long checkCount;
+    long definiteMissCount;
+    long falsePositiveCount;
+    double falsePositiveRate;
+}
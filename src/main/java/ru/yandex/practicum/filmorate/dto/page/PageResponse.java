@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.dto.page;
+
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+import java.util.List;
+
+@Data
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class PageResponse<T> {
+
+    List<T> items;
+    String nextCursor;
+}
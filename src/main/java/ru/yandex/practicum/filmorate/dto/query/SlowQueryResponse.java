@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.dto.query;
+
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class SlowQueryResponse {
+
+    Instant timestamp;
+    String queryName;
+    String sql;
+    List<String> parameterShapes;
+    double durationMillis;
+    int rows;
+    String planStatus;
+    String plan;
+}
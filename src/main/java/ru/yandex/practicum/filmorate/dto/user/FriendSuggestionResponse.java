@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.dto.user;
+
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class FriendSuggestionResponse {
+
+    long id;
+    String email;
+    String login;
+    String name;
+    LocalDate birthday;
+    int mutualFriends;
+}
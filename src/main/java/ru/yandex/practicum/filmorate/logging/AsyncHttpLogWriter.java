@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.HttpLogWriter;
+import org.zalando.logbook.Logbook;
+import org.zalando.logbook.Precorrelation;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Записи журнала HTTP-обменов складываются в ограниченную очередь и пишутся отдельным потоком.
+// Если очередь заполнена, запись отбрасывается и учитывается в счётчике, поток запроса не ждёт
+@Component
+public class AsyncHttpLogWriter implements HttpLogWriter {
+
+    static final String DROPPED_COUNTER = "filmorate.http-log.dropped";
+
+    private static final Logger log = LoggerFactory.getLogger(Logbook.class);
+
+    private final BlockingQueue<String> queue;
+    private final Counter droppedCounter;
+    private final Thread writer;
+
+    public AsyncHttpLogWriter(@Value("${filmorate.http-log.queue-capacity:10000}") int capacity,
+                              ObjectProvider<MeterRegistry> meterRegistry) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        this.droppedCounter = registry == null ? null : Counter.builder(DROPPED_COUNTER)
+                .description("Записи журнала HTTP-обменов, отброшенные из-за заполненной очереди")
+                .register(registry);
+        this.writer = new Thread(this::drain, "http-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public boolean isActive() {
+        return log.isInfoEnabled();
+    }
+
+    @Override
+    public void write(Precorrelation precorrelation, String request) {
+        offer(request);
+    }
+
+    @Override
+    public void write(Correlation correlation, String response) {
+        offer(response);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        writer.interrupt();
+        writer.join();
+        for (String message = queue.poll(); message != null; message = queue.poll()) {
+            log.info(message);
+        }
+    }
+
+    private void offer(String message) {
+        if (!queue.offer(message) && droppedCounter != null) {
+            droppedCounter.increment();
+        }
+    }
+
+    private void drain() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                log.info(queue.take());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.HttpLogFormatter;
+import org.zalando.logbook.HttpLogWriter;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+import org.zalando.logbook.Precorrelation;
+import org.zalando.logbook.Sink;
+import org.zalando.logbook.json.JsonHttpLogFormatter;
+import java.io.IOException;
+
+// Заменяет DefaultSink: его writeBoth пишет запрос и ответ двумя отдельными записями, и под нагрузкой
+// между ними попадают чужие строки или одна из них отбрасывается очередью. Здесь обмен пишется одной записью
+@Component
+public class ExchangeLogSink implements Sink {
+
+    private final HttpLogFormatter formatter;
+    private final HttpLogWriter writer;
+
+    // Без автоконфигурации Logbook (например, в срезах тестов) бина форматтера нет
+    public ExchangeLogSink(ObjectProvider<HttpLogFormatter> formatter, HttpLogWriter writer) {
+        this.formatter = formatter.getIfAvailable(JsonHttpLogFormatter::new);
+        this.writer = writer;
+    }
+
+    @Override
+    public boolean isActive() {
+        return writer.isActive();
+    }
+
+    @Override
+    public void write(Precorrelation precorrelation, HttpRequest request) throws IOException {
+        writer.write(precorrelation, formatter.format(precorrelation, request));
+    }
+
+    @Override
+    public void write(Correlation correlation, HttpRequest request, HttpResponse response) throws IOException {
+        writer.write(correlation, formatter.format(correlation, response));
+    }
+
+    @Override
+    public void writeBoth(Correlation correlation, HttpRequest request, HttpResponse response) throws IOException {
+        writer.write(correlation, formatter.format(correlation, request) + System.lineSeparator()
+                + formatter.format(correlation, response));
+    }
+}
@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+import org.zalando.logbook.Precorrelation;
+import org.zalando.logbook.Sink;
+import org.zalando.logbook.Strategy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Запрос и ответ пишутся одной записью после завершения обмена: для доли sample-rate запросов
+// с телами, для ошибок и медленных запросов всегда (у невыбранных запросов без тел).
+// Тела невыбранных запросов не буферизуются вовсе
+@Component
+public class SampledLogbookStrategy implements Strategy {
+
+    private final double sampleRate;
+    private final Duration slowThreshold;
+    private final int errorStatus;
+    // Решение о выборке принимается до обработки запроса, а запись может произойти в другом потоке
+    // (асинхронные ответы), поэтому выбранные обмены запоминаются по идентификатору корреляции
+    private final Cache<String, Boolean> sampledExchanges;
+    private final ThreadLocal<Boolean> sampledRequest = ThreadLocal.withInitial(() -> false);
+
+    public SampledLogbookStrategy(@Value("${filmorate.http-log.sample-rate:0.01}") double sampleRate,
+                                  @Value("${filmorate.http-log.slow-threshold:PT1S}") Duration slowThreshold,
+                                  @Value("${filmorate.http-log.error-status:400}") int errorStatus,
+                                  @Value("${spring.mvc.async.request-timeout:PT30M}") Duration maxExchangeDuration) {
+        this.sampleRate = sampleRate;
+        this.slowThreshold = slowThreshold;
+        this.errorStatus = errorStatus;
+        this.sampledExchanges = Caffeine.newBuilder()
+                .expireAfterWrite(maxExchangeDuration.plusMinutes(1))
+                .build();
+    }
+
+    @Override
+    public HttpRequest process(HttpRequest request) throws IOException {
+        boolean sampled = sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+        sampledRequest.set(sampled);
+        return sampled ? request.withBody() : request.withoutBody();
+    }
+
+    @Override
+    public void write(Precorrelation precorrelation, HttpRequest request, Sink sink) {
+        if (sampledRequest.get()) {
+            sampledExchanges.put(precorrelation.getId(), true);
+        }
+    }
+
+    @Override
+    public HttpResponse process(HttpRequest request, HttpResponse response) throws IOException {
+        boolean sampled = sampledRequest.get();
+        sampledRequest.remove();
+        return sampled ? response.withBody() : response.withoutBody();
+    }
+
+    @Override
+    public void write(Correlation correlation, HttpRequest request, HttpResponse response, Sink sink)
+            throws IOException {
+        boolean sampled = sampledExchanges.asMap().remove(correlation.getId()) != null;
+        if (sampled || response.getStatus() >= errorStatus || correlation.getDuration().compareTo(slowThreshold) >= 0) {
+            sink.writeBoth(correlation, request, response);
+        }
+    }
+}
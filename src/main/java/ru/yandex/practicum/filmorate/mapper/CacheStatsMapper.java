@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.mapper;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import ru.yandex.practicum.filmorate.dal.EntityCache;
+import ru.yandex.practicum.filmorate.dto.cache.CacheStatsResponse;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class CacheStatsMapper {
+
+    public static CacheStatsResponse mapToCacheStatsResponse(EntityCache<?> cache) {
+        CacheStats stats = cache.stats();
+        return CacheStatsResponse.builder()
+                .name(cache.getName())
+                .size(cache.estimatedSize())
+                .hitCount(stats.hitCount())
+                .missCount(stats.missCount())
+                .hitRate(stats.hitRate())
+                .evictionCount(stats.evictionCount())
+                .build();
+    }
+}
@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.mapper;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import ru.yandex.practicum.filmorate.dal.IdFilter;
+import ru.yandex.practicum.filmorate.dto.filter.IdFilterStatsResponse;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class IdFilterStatsMapper {
+
+    public static IdFilterStatsResponse mapToIdFilterStatsResponse(IdFilter filter) {
+        IdFilter.Stats stats = filter.stats();
+        return IdFilterStatsResponse.builder()
+                .name(filter.getName())
+                .enabled(filter.isEnabled())
+                .size(stats.size())
+                .capacity(stats.capacity())
+                .memoryBytes(stats.memoryBytes())
+                .tables(stats.tables())
+                .loadFactor(stats.loadFactor())
+                .expectedFalsePositiveRate(stats.expectedFalsePositiveRate())
+                .checkCount(stats.checks())
+                .definiteMissCount(stats.definiteMisses())
+                .falsePositiveCount(stats.falsePositives())
+                .falsePositiveRate(stats.falsePositiveRate())
+                .build();
+    }
+}
@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.mapper;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import ru.yandex.practicum.filmorate.dal.SlowQuery;
+import ru.yandex.practicum.filmorate.dto.query.SlowQueryResponse;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class SlowQueryMapper {
+
+    public static SlowQueryResponse mapToSlowQueryResponse(SlowQuery slowQuery) {
+        return SlowQueryResponse.builder()
+                .timestamp(slowQuery.getTimestamp())
+                .queryName(slowQuery.getQueryName())
+                .sql(slowQuery.getSql())
+                .parameterShapes(slowQuery.getParameterShapes())
+                .durationMillis(slowQuery.getDurationMicros() / 1000.0)
+                .rows(slowQuery.getRows())
+                .planStatus(slowQuery.getPlanStatus())
+                .plan(slowQuery.getPlan())
+                .build();
+    }
+}
@@ -2,9 +2,11 @@ package ru.yandex.practicum.filmorate.mapper;
 
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
+import ru.yandex.practicum.filmorate.dto.user.FriendSuggestionResponse;
 import ru.yandex.practicum.filmorate.dto.user.NewUserRequest;
 import ru.yandex.practicum.filmorate.dto.user.UpdateUserRequest;
 import ru.yandex.practicum.filmorate.dto.user.UserResponse;
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
 import ru.yandex.practicum.filmorate.model.User;
 
 
@@ -39,6 +41,18 @@ public class UserMapper {
                 .build();
     }
 
+    public static FriendSuggestionResponse mapToFriendSuggestionResponse(FriendSuggestion suggestion) {
+        User user = suggestion.getUser();
+        return FriendSuggestionResponse.builder()
+                .id(user.getId())
+                .email(user.getEmail())
+                .login(user.getLogin())
+                .name(user.getName())
+                .birthday(user.getBirthday())
+                .mutualFriends(suggestion.getMutualFriends())
+                .build();
+    }
+
     public static User updateUserFields(User user, UpdateUserRequest request) {
         if (request.hasName()) {
             user.setName(request.getName());
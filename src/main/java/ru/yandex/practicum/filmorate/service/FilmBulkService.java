@@ -0,0 +1,138 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.dal.film.FilmStorage;
+import ru.yandex.practicum.filmorate.dto.film.FilmBulkError;
+import ru.yandex.practicum.filmorate.dto.film.FilmBulkResponse;
+import ru.yandex.practicum.filmorate.dto.film.NewFilmRequest;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+@Service
+public class FilmBulkService {
+
+    private final FilmService filmService;
+    private final FilmStorage filmStorage;
+    private final ObjectProvider<ObjectMapper> objectMapper;
+    private final int chunkSize;
+
+    public FilmBulkService(FilmService filmService,
+                           FilmStorage filmStorage,
+                           ObjectProvider<ObjectMapper> objectMapper,
+                           @Value("${filmorate.bulk.chunk-size:1000}") int chunkSize) {
+        this.filmService = filmService;
+        this.filmStorage = filmStorage;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+    }
+
+    public FilmBulkResponse addFilms(InputStream body) throws IOException {
+        ObjectMapper mapper = objectMapper.getObject();
+        Load load = new Load();
+        try (JsonParser parser = mapper.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new ValidationException("Тело запроса должно быть JSON-массивом фильмов");
+            }
+            int index = 0;
+            try {
+                JsonToken token;
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    if (token == null) {
+                        log.error("Загрузка фильмов прервана: массив не закрыт после элемента {}", index);
+                        load.fail(index, "Некорректный JSON, загрузка остановлена");
+                        break;
+                    }
+                    if (token == JsonToken.START_OBJECT) {
+                        JsonNode node = mapper.readTree(parser);
+                        try {
+                            load.add(index, filmService.validateNewFilm(mapper.treeToValue(node, NewFilmRequest.class)));
+                        } catch (JsonProcessingException e) {
+                            load.fail(index, "Некорректный формат фильма");
+                        } catch (ValidationException e) {
+                            load.fail(index, e.getMessage());
+                        }
+                    } else {
+                        // Элемент пропускается целиком, даже если это вложенный массив
+                        parser.skipChildren();
+                        load.fail(index, "Элемент массива должен быть объектом фильма");
+                    }
+                    index++;
+                    if (load.chunk.size() >= chunkSize) {
+                        load.flush();
+                    }
+                }
+            } catch (JsonProcessingException e) {
+                log.error("Загрузка фильмов прервана: некорректный JSON после элемента {}", index, e);
+                load.fail(index, "Некорректный JSON, загрузка остановлена");
+            }
+            load.flush();
+            load.received = index;
+        }
+        log.info("Пакетная загрузка фильмов завершена: получено {}, сохранено {}, ошибок {}",
+                load.received, load.created, load.errors.size());
+        return FilmBulkResponse.builder()
+                .received(load.received)
+                .created(load.created)
+                .errors(load.errors)
+                .build();
+    }
+
+    private class Load {
+
+        final List<Film> chunk = new ArrayList<>();
+        final List<Integer> chunkIndexes = new ArrayList<>();
+        final List<FilmBulkError> errors = new ArrayList<>();
+        int received;
+        int created;
+
+        void add(int index, Film film) {
+            chunk.add(film);
+            chunkIndexes.add(index);
+        }
+
+        void fail(int index, String error) {
+            errors.add(FilmBulkError.builder()
+                    .index(index)
+                    .error(error)
+                    .build());
+        }
+
+        // Каждая порция сохраняется в своей транзакции; если она не прошла целиком,
+        // фильмы порции сохраняются по одному, чтобы найти конкретные ошибочные элементы
+        void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            try {
+                filmStorage.addFilms(chunk);
+                created += chunk.size();
+            } catch (DataAccessException e) {
+                log.warn("Не удалось сохранить порцию из {} фильмов, сохраняем по одному", chunk.size(), e);
+                for (int i = 0; i < chunk.size(); i++) {
+                    try {
+                        filmStorage.addFilm(chunk.get(i));
+                        created++;
+                    } catch (DataAccessException ex) {
+                        fail(chunkIndexes.get(i), "Не удалось сохранить фильм");
+                    }
+                }
+            }
+            chunk.clear();
+            chunkIndexes.clear();
+        }
+    }
+}
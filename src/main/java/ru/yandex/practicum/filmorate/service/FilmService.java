@@ -4,18 +4,23 @@ import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections.CollectionUtils;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.dal.dictionary.Dictionaries;
 import ru.yandex.practicum.filmorate.dto.film.UpdateFilmRequest;
-import ru.yandex.practicum.filmorate.dto.genre.GenreRequest;
 import ru.yandex.practicum.filmorate.dto.film.FilmResponse;
 import ru.yandex.practicum.filmorate.dto.film.NewFilmRequest;
+import ru.yandex.practicum.filmorate.dto.page.PageResponse;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.mapper.FilmMapper;
 import ru.yandex.practicum.filmorate.mapper.GenreMapper;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.TrendingPeriod;
 import ru.yandex.practicum.filmorate.dal.film.FilmStorage;
+import ru.yandex.practicum.filmorate.dal.film.LikeWriteBehind;
+import ru.yandex.practicum.filmorate.dal.user.UserStorage;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
@@ -23,8 +28,10 @@ import java.util.*;
 public class FilmService {
 
     private FilmStorage filmStorage;
-    private GenreService genreService;
-    private MpaRatingService mpaRatingService;
+    private UserStorage userStorage;
+    private LikeWriteBehind likeWriteBehind;
+    private Dictionaries dictionaries;
+    private PaginationService paginationService;
 
     public List<FilmResponse> getAllFilms() {
         return filmStorage.getAllFilms().stream()
@@ -32,36 +39,22 @@ public class FilmService {
                 .toList();
     }
 
-    public FilmResponse addFilm(NewFilmRequest film) {
-        validateFilm(FilmMapper.mapToFilm(film));
-        if (film.getMpa() != null) {
-            try {
-                mpaRatingService.getById(film.getMpa().getId());
-            } catch (Exception e) {
-                throw new ValidationException(String.format("Рейтинг с id = %s не найден", film.getMpa()));
-            }
-        }
-        if (CollectionUtils.isNotEmpty(film.getGenres())) {
-            for (var genre : film.getGenres()) {
-                try {
-                    genreService.getById(genre.getId());
-                } catch (Exception e) {
-                    throw new ValidationException(String.format("Жанр с id = %s не найден", genre.getId()));
-                }
-            }
-        }
+    public void exportFilms(Consumer<FilmResponse> consumer) {
+        filmStorage.streamAllFilms(film -> consumer.accept(FilmMapper.mapToFilmResponse(film)));
+    }
 
-        FilmResponse filmResponse = FilmMapper.mapToFilmResponse(filmStorage.addFilm(FilmMapper.mapToFilm(film)));
+    public PageResponse<FilmResponse> getFilmsPage(String after, int limit) {
+        int pageLimit = paginationService.limit(limit);
+        List<FilmResponse> films = filmStorage.getFilmsPage(paginationService.after(after), pageLimit + 1).stream()
+                .map(FilmMapper::mapToFilmResponse)
+                .toList();
+        return paginationService.page(films, pageLimit, FilmResponse::getId);
+    }
 
-        if (CollectionUtils.isNotEmpty(film.getGenres())) {
-            Set<Integer> createdGenreIds = new HashSet<>();
-            for (var genre : film.getGenres()) {
-                if (!createdGenreIds.contains(genre.getId())) {
-                    filmStorage.addGenreToFilm(filmResponse.getId(), genre.getId());
-                    createdGenreIds.add(genre.getId());
-                }
-            }
+    public FilmResponse addFilm(NewFilmRequest film) {
+        FilmResponse filmResponse = FilmMapper.mapToFilmResponse(filmStorage.addFilm(validateNewFilm(film)));
 
+        if (CollectionUtils.isNotEmpty(film.getGenres())) {
             filmResponse.setGenres(film.getGenres().stream()
                     .map(GenreMapper::mapToGenreResponse)
                     .toList());
@@ -74,15 +67,6 @@ public class FilmService {
         Film oldFilm = filmStorage.findFilmById(filmId)
                 .orElseThrow(() -> new NotFoundException(String.format("Фильм с id = %d не найден", filmId)));
         validateFilm(FilmMapper.mapToFilm(request));
-        filmStorage.removeGenreFromFilm(filmId);
-        if (request.hasGenres()) {
-            List<Integer> newGenreIds = request.getGenres().stream()
-                    .map(GenreRequest::getId)
-                    .toList();
-            for (Integer newGenreId : newGenreIds) {
-                filmStorage.addGenreToFilm(filmId, newGenreId);
-            }
-        }
         Film updatedFilm = FilmMapper.updateFilmFields(oldFilm, request);
         filmStorage.updateFilm(updatedFilm);
         return FilmMapper.mapToFilmResponse(updatedFilm);
@@ -99,22 +83,100 @@ public class FilmService {
     }
 
     public void addLike(long filmId, long userId) {
+        if (likeWriteBehind.isEnabled()) {
+            checkLikeParticipants(filmId, userId);
+            likeWriteBehind.enqueue(filmId, userId, true);
+            return;
+        }
         filmStorage.addLikeToFilm(filmId, userId);
     }
 
     public void removeLike(long filmId, long userId) {
+        if (likeWriteBehind.isEnabled()) {
+            checkLikeParticipants(filmId, userId);
+            likeWriteBehind.enqueue(filmId, userId, false);
+            return;
+        }
         filmStorage.removeLikeFromFilm(filmId, userId);
     }
 
-    public List<FilmResponse> getPopularFilms(int count) {
-        return filmStorage.getPopularFilms(count)
+    public List<FilmResponse> getPopularFilms(int count, Integer genreId, Integer mpaId, Integer year) {
+        return filmStorage.getPopularFilms(count, genreId, mpaId, year)
+                .stream()
+                .map(FilmMapper::mapToFilmResponse)
+                .toList();
+    }
+
+    public List<FilmResponse> getTrendingFilms(String period, int count) {
+        TrendingPeriod trendingPeriod;
+        try {
+            trendingPeriod = TrendingPeriod.valueOf(period.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            log.error("Неизвестный период трендов {}", period);
+            throw new ValidationException("Период должен быть одним из значений: hour, day, week");
+        }
+        return filmStorage.getTrendingFilms(trendingPeriod, paginationService.limit(count))
+                .stream()
+                .map(FilmMapper::mapToFilmResponse)
+                .toList();
+    }
+
+    public List<FilmResponse> getRecommendedFilms(long userId, int count) {
+        if (userStorage.getUserById(userId).isEmpty()) {
+            log.error("Пользователь с id = {} не найден", userId);
+            throw new NotFoundException(String.format("Пользователя с id = %d нет в базе", userId));
+        }
+        if (likeWriteBehind.isEnabled()) {
+            likeWriteBehind.flushUser(userId);
+        }
+        return filmStorage.getRecommendedFilms(userId, paginationService.limit(count))
+                .stream()
+                .map(FilmMapper::mapToFilmResponse)
+                .toList();
+    }
+
+    public List<FilmResponse> searchFilms(String query, int count) {
+        if (query == null || query.isBlank()) {
+            return List.of();
+        }
+        return filmStorage.searchFilms(query, paginationService.limit(count))
                 .stream()
                 .map(FilmMapper::mapToFilmResponse)
                 .toList();
     }
 
+    public Film validateNewFilm(NewFilmRequest film) {
+        if (film.getName() == null || film.getDescription() == null || film.getReleaseDate() == null
+                || film.getDuration() == null) {
+            log.error("Не заполнены обязательные поля фильма {}", film);
+            throw new ValidationException("Название, описание, дата релиза и продолжительность фильма обязательны");
+        }
+        Film newFilm = FilmMapper.mapToFilm(film);
+        validateFilm(newFilm);
+        if (film.getMpa() != null && dictionaries.mpaRatings().get(film.getMpa().getId()).isEmpty()) {
+            throw new ValidationException(String.format("Рейтинг с id = %s не найден", film.getMpa()));
+        }
+        if (CollectionUtils.isNotEmpty(film.getGenres())) {
+            for (var genre : film.getGenres()) {
+                if (dictionaries.genres().get(genre.getId()).isEmpty()) {
+                    throw new ValidationException(String.format("Жанр с id = %s не найден", genre.getId()));
+                }
+            }
+        }
+        return newFilm;
+    }
+
+    private void checkLikeParticipants(long filmId, long userId) {
+        if (filmStorage.findFilmById(filmId).isEmpty()) {
+            throw new NotFoundException(String.format("Фильм с id = %d не найден", filmId));
+        }
+        if (userStorage.getUserById(userId).isEmpty()) {
+            throw new NotFoundException(String.format("Пользователь с id = %d не найден", userId));
+        }
+    }
+
     private void validateFilm(Film film) {
-        log.info("Запущен процесс валидации для фильма {}", film);
+        log.debug("Запущен процесс валидации для фильма {}", film);
         if (film.getName().isBlank()) {
             log.error("Отсутствует название фильма {}", film);
             throw new ValidationException("Название фильма не может быть пустым");
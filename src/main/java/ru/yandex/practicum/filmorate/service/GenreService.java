@@ -3,7 +3,7 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import ru.yandex.practicum.filmorate.dal.genre.GenreStorage;
+import ru.yandex.practicum.filmorate.dal.dictionary.Dictionaries;
 import ru.yandex.practicum.filmorate.dto.genre.GenreResponse;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.mapper.GenreMapper;
@@ -14,16 +14,16 @@ import java.util.List;
 @AllArgsConstructor
 public class GenreService {
 
-    private GenreStorage genreStorage;
+    private Dictionaries dictionaries;
 
     public List<GenreResponse> findAll() {
-        return genreStorage.findAll().stream()
+        return dictionaries.genres().values().stream()
                 .map(GenreMapper::mapToGenreResponse)
                 .toList();
     }
 
     public GenreResponse getById(int id) {
-        return genreStorage.getById(id)
+        return dictionaries.genres().get(id)
                 .map(GenreMapper::mapToGenreResponse)
                 .orElseThrow(() -> new NotFoundException(String.format("Жанр с id = %d не найден", id)));
     }
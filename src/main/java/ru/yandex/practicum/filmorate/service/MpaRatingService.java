@@ -3,7 +3,7 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import ru.yandex.practicum.filmorate.dal.mpa.MpaRatingStorage;
+import ru.yandex.practicum.filmorate.dal.dictionary.Dictionaries;
 import ru.yandex.practicum.filmorate.dto.mpa.MpaRatingResponse;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.mapper.MpaRatingMapper;
@@ -14,16 +14,16 @@ import java.util.List;
 @AllArgsConstructor
 public class MpaRatingService {
 
-    private MpaRatingStorage mpaRatingStorage;
+    private Dictionaries dictionaries;
 
     public List<MpaRatingResponse> findAll() {
-        return mpaRatingStorage.findAll().stream()
+        return dictionaries.mpaRatings().values().stream()
                 .map(MpaRatingMapper::mapToMpaRatingResponse)
                 .toList();
     }
 
     public MpaRatingResponse getById(int id) {
-        return mpaRatingStorage.getById(id)
+        return dictionaries.mpaRatings().get(id)
                 .map(MpaRatingMapper::mapToMpaRatingResponse)
                 .orElseThrow(() -> new NotFoundException(String.format("Рейтинг с id = %d не найден", id)));
     }
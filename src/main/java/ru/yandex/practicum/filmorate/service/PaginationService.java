@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.dto.page.PageResponse;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+@Slf4j
+@Service
+public class PaginationService {
+
+    private final int maxLimit;
+
+    public PaginationService(@Value("${filmorate.pagination.max-limit:100}") int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+
+    public int limit(int requestedLimit) {
+        if (requestedLimit <= 0) {
+            log.error("Размер страницы должен быть положительным, получено {}", requestedLimit);
+            throw new ValidationException("Размер страницы должен быть положительным числом");
+        }
+        return Math.min(requestedLimit, maxLimit);
+    }
+
+    public long after(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0;
+        }
+        try {
+            byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+            if (bytes.length != Long.BYTES) {
+                throw new IllegalArgumentException();
+            }
+            return ByteBuffer.wrap(bytes).getLong();
+        } catch (IllegalArgumentException e) {
+            log.error("Некорректный курсор страницы '{}'", cursor);
+            throw new ValidationException("Некорректный курсор страницы");
+        }
+    }
+
+    // Хранилище запрашивается с limit + 1 записями: лишняя запись означает, что есть следующая страница
+    public <T> PageResponse<T> page(List<T> items, int limit, ToLongFunction<T> idExtractor) {
+        if (items.size() <= limit) {
+            return PageResponse.<T>builder()
+                    .items(items)
+                    .build();
+        }
+        List<T> pageItems = items.subList(0, limit);
+        return PageResponse.<T>builder()
+                .items(pageItems)
+                .nextCursor(cursor(idExtractor.applyAsLong(pageItems.getLast())))
+                .build();
+    }
+
+    private String cursor(long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(ByteBuffer.allocate(Long.BYTES).putLong(id).array());
+    }
+}
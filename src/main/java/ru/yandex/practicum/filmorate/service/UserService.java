@@ -2,7 +2,10 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.dto.page.PageResponse;
+import ru.yandex.practicum.filmorate.dto.user.FriendSuggestionResponse;
 import ru.yandex.practicum.filmorate.dto.user.NewUserRequest;
 import ru.yandex.practicum.filmorate.dto.user.UpdateUserRequest;
 import ru.yandex.practicum.filmorate.dto.user.UserResponse;
@@ -13,6 +16,7 @@ import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.dal.user.UserStorage;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
@@ -20,6 +24,7 @@ import java.util.*;
 public class UserService {
 
     private final UserStorage userStorage;
+    private final PaginationService paginationService;
 
     public List<UserResponse> getAllUsers() {
         return userStorage.getAllUsers().stream()
@@ -27,18 +32,21 @@ public class UserService {
                 .toList();
     }
 
+    public void exportUsers(Consumer<UserResponse> consumer) {
+        userStorage.streamAllUsers(user -> consumer.accept(UserMapper.mapToUserResponse(user)));
+    }
+
+    public PageResponse<UserResponse> getUsersPage(String after, int limit) {
+        int pageLimit = paginationService.limit(limit);
+        List<UserResponse> users = userStorage.getUsersPage(paginationService.after(after), pageLimit + 1).stream()
+                .map(UserMapper::mapToUserResponse)
+                .toList();
+        return paginationService.page(users, pageLimit, UserResponse::getId);
+    }
+
     public UserResponse createUser(NewUserRequest request) {
         validateUser(UserMapper.mapToUser(request));
-        Optional<User> alreadyExistsUserEmail = userStorage.getUserByEmail(request.getEmail());
-        if (alreadyExistsUserEmail.isPresent()) {
-            log.error("Имейл '{}' уже используется", request.getEmail());
-            throw new ValidationException("Этот имейл уже используется");
-        }
-        Optional<User> alreadyExistsUserLogin = userStorage.getUserByLogin(request.getLogin());
-        if (alreadyExistsUserLogin.isPresent()) {
-            log.error("Логин '{}' уже используется", request.getLogin());
-            throw new ValidationException("Этот логин уже используется");
-        }
+        // Занятые имейл и логин отклоняют уникальные индексы, ошибку переводит ErrorHandler
         return UserMapper.mapToUserResponse(userStorage.createUser(UserMapper.mapToUser(request)));
     }
 
@@ -73,48 +81,66 @@ public class UserService {
                 .toList();
     }
 
-    public void addFriend(long inviterId, long inviteeId) {
-        Optional<User> inviter = userStorage.getUserById(inviterId);
-        if (inviter.isEmpty()) {
-            log.error("Пользователь с id = {} не найден", inviterId);
-            throw new NotFoundException(String.format("Пользователя с id = %d нет в базе", inviterId));
+    public PageResponse<UserResponse> getFriendsPage(long userId, String after, int limit) {
+        Optional<User> user = userStorage.getUserById(userId);
+        if (user.isEmpty()) {
+            log.error("Пользователь с id={} не найден", userId);
+            throw new NotFoundException(String.format("Пользователя с id = %d нет в базе", userId));
         }
-        Optional<User> invitee = userStorage.getUserById(inviteeId);
-        if (invitee.isEmpty()) {
-            log.error("Пользователь с id = {} не найден", inviteeId);
-            throw new NotFoundException(String.format("Пользователя с id = %d нет в базе", inviteeId));
+        int pageLimit = paginationService.limit(limit);
+        List<UserResponse> friends = userStorage.getFriendsPage(userId, paginationService.after(after), pageLimit + 1)
+                .stream()
+                .map(UserMapper::mapToUserResponse)
+                .toList();
+        return paginationService.page(friends, pageLimit, UserResponse::getId);
+    }
+
+    // Существование пользователей проверяется только при неудаче основного запроса,
+    // одним запросом на оба id
+    public void addFriend(long inviterId, long inviteeId) {
+        try {
+            userStorage.addFriend(inviterId, inviteeId);
+        } catch (DataIntegrityViolationException e) {
+            checkUsersExist(inviterId, inviteeId);
+            throw e;
         }
-        userStorage.addFriend(inviterId, inviteeId);
     }
 
     public void removeFriend(long userId, long friendId) {
+        if (!userStorage.removeFriend(userId, friendId)) {
+            checkUsersExist(userId, friendId);
+        }
+    }
+
+    public List<UserResponse> getCommonFriends(Long firstUserId, long secondUserId) {
+        List<User> commonFriends = userStorage.getCommonFriends(firstUserId, secondUserId);
+        if (commonFriends.isEmpty()) {
+            checkUsersExist(firstUserId, secondUserId);
+        }
+        return commonFriends.stream()
+                .map(UserMapper::mapToUserResponse)
+                .toList();
+    }
+
+    public List<FriendSuggestionResponse> getFriendSuggestions(long userId, int count) {
         Optional<User> user = userStorage.getUserById(userId);
         if (user.isEmpty()) {
             log.error("Пользователь с id = {} не был найден", userId);
             throw new NotFoundException(String.format("Пользователя с id = %d нет в базе", userId));
         }
-        Optional<User> friend = userStorage.getUserById(friendId);
-        if (friend.isEmpty()) {
-            log.error("Пользователь с id = {} не был найден", friendId);
-            throw new NotFoundException(String.format("Пользователя с id = %d нет в базе", friendId));
-        }
-        userStorage.removeFriend(userId, friendId);
+        return userStorage.getFriendSuggestions(userId, paginationService.limit(count)).stream()
+                .map(UserMapper::mapToFriendSuggestionResponse)
+                .toList();
     }
 
-    public List<UserResponse> getCommonFriends(Long firstUserId, long secondUserId) {
-        Optional<User> user = userStorage.getUserById(firstUserId);
-        if (user.isEmpty()) {
-            log.error("Пользователь с id = {} не был найден", firstUserId);
-            throw new NotFoundException(String.format("Пользователя с id = %d нет в базе", firstUserId));
-        }
-        Optional<User> friend = userStorage.getUserById(secondUserId);
-        if (friend.isEmpty()) {
-            log.error("Пользователь с id = {} не был найден", secondUserId);
-            throw new NotFoundException(String.format("Пользователя с id = %d нет в базе", secondUserId));
+    private void checkUsersExist(long firstUserId, long secondUserId) {
+        Set<Long> existingIds = userStorage.getExistingUserIds(firstUserId, secondUserId);
+        for (long userId : List.of(firstUserId, secondUserId)) {
+            if (!existingIds.contains(userId)) {
+                log.error("Пользователь с id = {} не был найден", userId);
+                throw new NotFoundException(String.format("Пользователя с id = %d нет в базе", userId));
+            }
         }
-        return userStorage.getCommonFriends(firstUserId, secondUserId).stream()
-                .map(UserMapper::mapToUserResponse)
-                .toList();
     }
 
     private void validateUser(User user) {
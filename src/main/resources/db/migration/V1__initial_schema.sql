@@ -1,5 +1,3 @@
-DROP TABLE IF EXISTS mpa_rating, films, genres, film_genres, users, film_likes, friendship;
-
 CREATE TABLE IF NOT EXISTS mpa_rating (
     id integer GENERATED BY DEFAULT AS identity PRIMARY KEY,
     name varchar(300) NOT NULL
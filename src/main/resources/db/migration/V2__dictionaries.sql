@@ -1,6 +1,6 @@
-INSERT INTO mpa_rating (id, name)
+MERGE INTO mpa_rating (id, name) KEY (id)
 VALUES (1, 'G'), (2, 'PG'), (3, 'PG-13'), (4, 'R'), (5, 'NC-17');
 
-INSERT INTO genres (id, name)
+MERGE INTO genres (id, name) KEY (id)
 VALUES (1, 'Комедия'), (2, 'Драма'), (3, 'Мультфильм'), (4, 'Триллер'), (5, 'Документальный'),
 (6, 'Боевик');
\ No newline at end of file
@@ -0,0 +1,5 @@
+CREATE INDEX IF NOT EXISTS FILM_LIKES_USER_INDEX ON film_likes (user_id);
+
+CREATE INDEX IF NOT EXISTS FRIENDSHIP_INVITEE_STATUS_INDEX ON friendship (invitee_id, status);
+
+CREATE INDEX IF NOT EXISTS FILM_RATING_INDEX ON films (rating_id);
@@ -0,0 +1,6 @@
+-- Время постановки уже существующих лайков неизвестно, они остаются с NULL и в трендах не учитываются
+ALTER TABLE film_likes ADD COLUMN IF NOT EXISTS created_at TIMESTAMP;
+
+ALTER TABLE film_likes ALTER COLUMN created_at SET DEFAULT CURRENT_TIMESTAMP;
+
+CREATE INDEX IF NOT EXISTS FILM_LIKES_CREATED_AT_INDEX ON film_likes (created_at);
@@ -0,0 +1,7 @@
+-- Счётчик лайков фильма. Базы, созданные до миграций, помечаются как V1 без её выполнения,
+-- поэтому столбец добавляется здесь, а не в V1, и заполняется по уже существующим лайкам
+ALTER TABLE films ADD COLUMN IF NOT EXISTS like_count BIGINT NOT NULL DEFAULT 0;
+
+UPDATE films AS f SET like_count = (SELECT COUNT(*) FROM film_likes AS fl WHERE fl.film_id = f.id);
+
+CREATE INDEX IF NOT EXISTS FILM_LIKE_COUNT_INDEX ON films (like_count DESC, name);
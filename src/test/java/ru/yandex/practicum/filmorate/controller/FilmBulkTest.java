@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:bulk;DB_CLOSE_DELAY=-1",
+        "filmorate.bulk.chunk-size=2"
+})
+@AutoConfigureMockMvc
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class FilmBulkTest {
+
+    private static final String VALID_FILM = """
+            {"name": "%s", "description": "description", "releaseDate": "2000-01-01", "duration": 100, "mpa": {"id": 1}}
+            """;
+
+    private final MockMvc mockMvc;
+    private final JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    public void afterEach() {
+        jdbcTemplate.execute("DELETE FROM films");
+    }
+
+    // Фильм без рейтинга проходит валидацию, но не сохраняется в базу: его порция
+    // сохраняется по одному фильму, и ошибка относится только к нему
+    @Test
+    public void addFilmsReportsErrorsPerItem() throws Exception {
+        String body = "[" + String.join(",",
+                film("film0"),
+                """
+                {"name": "no mpa", "description": "description", "releaseDate": "2000-01-01", "duration": 100}
+                """,
+                "5",
+                "{\"name\": \"no description\"}",
+                film("film4"),
+                "[\"nested\", {\"name\": \"film\"}]",
+                film("film6")) + "]";
+
+        mockMvc.perform(post("/films/bulk").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(7))
+                .andExpect(jsonPath("$.created").value(3))
+                .andExpect(jsonPath("$.errors", hasSize(4)))
+                .andExpect(jsonPath("$.errors[*].index").value(contains(1, 2, 3, 5)))
+                .andExpect(jsonPath("$.errors[0].error").value("Не удалось сохранить фильм"))
+                .andExpect(jsonPath("$.errors[1].error").value("Элемент массива должен быть объектом фильма"));
+
+        assertThat(jdbcTemplate.queryForList("SELECT name FROM films ORDER BY id", String.class))
+                .containsExactly("film0", "film4", "film6");
+    }
+
+    @Test
+    public void addFilmsStopsAtMalformedJson() throws Exception {
+        String body = "[" + film("film0") + "," + film("film1") + ", {\"name\": ";
+
+        mockMvc.perform(post("/films/bulk").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(2))
+                .andExpect(jsonPath("$.created").value(2))
+                .andExpect(jsonPath("$.errors[0].index").value(2))
+                .andExpect(jsonPath("$.errors[0].error").value("Некорректный JSON, загрузка остановлена"));
+    }
+
+    private static String film(String name) {
+        return String.format(VALID_FILM, name);
+    }
+}
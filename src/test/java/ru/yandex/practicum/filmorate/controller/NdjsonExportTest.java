@@ -0,0 +1,124 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.dal.film.FilmStorage;
+import ru.yandex.practicum.filmorate.dal.user.UserStorage;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.IntStream;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:ndjson;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class NdjsonExportTest {
+
+    private final MockMvc mockMvc;
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final NdjsonStreamer ndjsonStreamer;
+    private final JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    public void afterEach() {
+        jdbcTemplate.execute("DELETE FROM films");
+        jdbcTemplate.execute("DELETE FROM users");
+    }
+
+    @Test
+    public void exportFilms() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            filmStorage.addFilm(Film.builder()
+                    .name("film" + i)
+                    .description("description")
+                    .duration(120)
+                    .releaseDate(LocalDate.of(2000, 1, 1))
+                    .mpa(MpaRating.builder()
+                            .id(1)
+                            .build())
+                    .genres(i == 1 ? List.of(Genre.builder().id(3).build(), Genre.builder().id(1).build()) : null)
+                    .build());
+        }
+
+        List<String> lines = export("/films");
+        assertThat(lines).hasSize(3);
+        assertThat(lines.get(0)).contains("\"name\":\"film0\"");
+        assertThat(lines.get(1)).contains("\"name\":\"film1\"")
+                .containsPattern("\"genres\":\\[\\{\"id\":1,[^]]*\\{\"id\":3,");
+        assertThat(lines.get(2)).contains("\"name\":\"film2\"");
+    }
+
+    @Test
+    public void exportUsers() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            userStorage.createUser(User.builder()
+                    .email("user" + i + "@yandex.ru")
+                    .login("login" + i)
+                    .name("name")
+                    .birthday(LocalDate.of(2005, 5, 1))
+                    .build());
+        }
+
+        List<String> lines = export("/users");
+        assertThat(lines).hasSize(2);
+        assertThat(lines.get(0)).contains("\"login\":\"login0\"");
+        assertThat(lines.get(1)).contains("\"login\":\"login1\"");
+    }
+
+    // Буфер сбрасывается после первой строки и затем раз в 256 строк, а не после каждой
+    @Test
+    public void flushesInBatches() throws IOException {
+        ResponseEntity<StreamingResponseBody> response = ndjsonStreamer.<Integer>stream(
+                consumer -> IntStream.range(0, 600).forEach(consumer::accept));
+        CountingOutputStream out = new CountingOutputStream();
+        response.getBody().writeTo(out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8).split("\n")).hasSize(600);
+        assertThat(out.flushes).isLessThanOrEqualTo(4);
+    }
+
+    private List<String> export(String path) throws Exception {
+        MvcResult result = mockMvc.perform(get(path).accept(NdjsonStreamer.APPLICATION_NDJSON_VALUE))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(NdjsonStreamer.APPLICATION_NDJSON_VALUE))
+                .andReturn()
+                .getResponse()
+                .getContentAsString(StandardCharsets.UTF_8);
+        return body.lines().toList();
+    }
+
+    private static class CountingOutputStream extends ByteArrayOutputStream {
+
+        private int flushes;
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.dal.film.FilmStorage;
+import ru.yandex.practicum.filmorate.dal.user.UserStorage;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Тесты без транзакции вокруг метода: внутри транзакции кэш не используется
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:cache;DB_CLOSE_DELAY=-1")
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class EntityCacheTest {
+
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final EntityCache<Film> filmCache;
+    private final EntityCache<User> userCache;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    public void afterEach() {
+        jdbcTemplate.execute("DELETE FROM films");
+        jdbcTemplate.execute("DELETE FROM users");
+        filmCache.invalidateAll();
+        userCache.invalidateAll();
+    }
+
+    @Test
+    public void updatedFilmIsNotServedFromCache() {
+        long filmId = addFilm();
+        Film film = filmStorage.findFilmById(filmId).orElseThrow();
+        film.setName("new name");
+        film.setMpa(MpaRating.builder().id(2).build());
+        filmStorage.updateFilm(film);
+
+        Film found = filmStorage.findFilmById(filmId).orElseThrow();
+        assertThat(found.getName()).isEqualTo("new name");
+        assertThat(found.getMpa().getId()).isEqualTo(2);
+    }
+
+    @Test
+    public void changedFilmGenresAreNotServedFromCache() {
+        long filmId = addFilm();
+        assertThat(filmStorage.findFilmById(filmId).orElseThrow().getGenres()).isNullOrEmpty();
+
+        filmStorage.updateFilmGenres(filmId, Set.of(1, 2));
+        assertThat(filmStorage.findFilmById(filmId).orElseThrow().getGenres())
+                .extracting(Genre::getId)
+                .containsExactlyInAnyOrder(1, 2);
+
+        filmStorage.removeGenreFromFilm(filmId);
+        assertThat(filmStorage.findFilmById(filmId).orElseThrow().getGenres()).isNullOrEmpty();
+    }
+
+    @Test
+    public void removedFilmIsNotServedFromCache() {
+        long filmId = addFilm();
+        assertThat(filmStorage.findFilmById(filmId)).isPresent();
+
+        filmStorage.removeFilm(filmId);
+        assertThat(filmStorage.findFilmById(filmId)).isEmpty();
+    }
+
+    @Test
+    public void changesOfReturnedFilmDoNotLeakIntoCache() {
+        long filmId = addFilm();
+        Film film = filmStorage.findFilmById(filmId).orElseThrow();
+        film.setName("changed without update");
+        film.setGenres(List.of(Genre.builder().id(1).build()));
+
+        Film found = filmStorage.findFilmById(filmId).orElseThrow();
+        assertThat(found.getName()).isEqualTo("film");
+        assertThat(found.getGenres()).isNullOrEmpty();
+    }
+
+    // Значение, загруженное другим потоком до фиксации транзакции, убирается после её завершения
+    @Test
+    public void filmLoadedBeforeCommitIsInvalidatedAfterCommit() {
+        long filmId = addFilm();
+        transactionTemplate.executeWithoutResult(status -> {
+            Film film = filmStorage.findFilmById(filmId).orElseThrow();
+            film.setName("new name");
+            filmStorage.updateFilm(film);
+            Film loadedBeforeCommit = CompletableFuture.supplyAsync(() -> filmStorage.findFilmById(filmId))
+                    .join()
+                    .orElseThrow();
+            assertThat(loadedBeforeCommit.getName()).isEqualTo("film");
+        });
+
+        assertThat(filmStorage.findFilmById(filmId).orElseThrow().getName()).isEqualTo("new name");
+    }
+
+    @Test
+    public void updatedUserIsNotServedFromCache() {
+        long userId = addUser();
+        User user = userStorage.getUserById(userId).orElseThrow();
+        user.setName("new name");
+        userStorage.updateUser(user);
+
+        assertThat(userStorage.getUserById(userId).orElseThrow().getName()).isEqualTo("new name");
+    }
+
+    @Test
+    public void removedUserIsNotServedFromCache() {
+        long userId = addUser();
+        assertThat(userStorage.getUserById(userId)).isPresent();
+
+        userStorage.removeUser(userId);
+        assertThat(userStorage.getUserById(userId)).isEmpty();
+    }
+
+    private long addFilm() {
+        return filmStorage.addFilm(Film.builder()
+                .name("film")
+                .description("description")
+                .duration(120)
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .mpa(MpaRating.builder()
+                        .id(1)
+                        .build())
+                .build()).getId();
+    }
+
+    private long addUser() {
+        return userStorage.createUser(User.builder()
+                .email("user@yandex.ru")
+                .login("login")
+                .name("name")
+                .birthday(LocalDate.of(2005, 5, 1))
+                .build()).getId();
+    }
+}
@@ -8,13 +8,21 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.dal.EntityVersions;
 import ru.yandex.practicum.filmorate.dal.user.UserDbStorage;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.TrendingPeriod;
 import ru.yandex.practicum.filmorate.model.User;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 
 @JdbcTest
@@ -25,6 +33,9 @@ public class FilmDbStorageTest {
 
     private final FilmStorage filmStorage;
     private final UserDbStorage userDbStorage;
+    private final LikeCountReconciler likeCountReconciler;
+    private final TrendingFilms trendingFilms;
+    private final EntityVersions entityVersions;
     private final JdbcTemplate jdbcTemplate;
 
     @AfterEach
@@ -202,4 +213,362 @@ public class FilmDbStorageTest {
         List<Film> films = filmStorage.getPopularFilms(1);
         assertThat(films.getFirst().getId()).isEqualTo(2L);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void getPopularFilmsAfterLikeRemoved() {
+        Film film1 = Film.builder()
+                .name("name")
+                .description("description")
+                .duration(120)
+                .releaseDate(LocalDate.of(2000, 6, 1))
+                .mpa(MpaRating.builder()
+                        .id(1)
+                        .name("G")
+                        .build())
+                .build();
+        filmStorage.addFilm(film1);
+
+        Film film2 = Film.builder()
+                .name("anotherName")
+                .description("anotherDescription")
+                .duration(150)
+                .releaseDate(LocalDate.of(2005, 5, 1))
+                .mpa(MpaRating.builder()
+                        .id(2)
+                        .name("PG")
+                        .build())
+                .build();
+        filmStorage.addFilm(film2);
+
+        User user = User.builder()
+                .email("mail@yandex.ru")
+                .login("login")
+                .name("name")
+                .birthday(LocalDate.of(2005, 5, 1))
+                .build();
+        userDbStorage.createUser(user);
+        filmStorage.addLikeToFilm(film1.getId(), user.getId());
+        assertThat(filmStorage.getPopularFilms(1).getFirst().getId()).isEqualTo(film1.getId());
+        filmStorage.removeLikeFromFilm(film1.getId(), user.getId());
+        List<Film> films = filmStorage.getPopularFilms(2);
+        assertThat(films.size()).isEqualTo(2);
+        assertThat(films.getFirst().getId()).isEqualTo(film2.getId());
+    }
+
+    @Test
+    public void reconcileLikeCount() {
+        Film film = Film.builder()
+                .name("name")
+                .description("description")
+                .duration(120)
+                .releaseDate(LocalDate.of(2000, 6, 1))
+                .mpa(MpaRating.builder()
+                        .id(1)
+                        .name("G")
+                        .build())
+                .build();
+        filmStorage.addFilm(film);
+        User user = User.builder()
+                .email("mail@yandex.ru")
+                .login("login")
+                .name("name")
+                .birthday(LocalDate.of(2005, 5, 1))
+                .build();
+        userDbStorage.createUser(user);
+        filmStorage.addLikeToFilm(film.getId(), user.getId());
+        assertThat(jdbcTemplate.queryForObject("SELECT like_count FROM films WHERE id = ?", Long.class,
+                film.getId())).isEqualTo(1L);
+        jdbcTemplate.update("UPDATE films SET like_count = 5 WHERE id = ?", film.getId());
+        assertThat(likeCountReconciler.reconcile()).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT like_count FROM films WHERE id = ?", Long.class,
+                film.getId())).isEqualTo(1L);
+        filmStorage.removeLikeFromFilm(film.getId(), user.getId());
+        assertThat(jdbcTemplate.queryForObject("SELECT like_count FROM films WHERE id = ?", Long.class,
+                film.getId())).isZero();
+    }
+
+    @Test
+    public void updateFilmGenres() {
+        Film film = Film.builder()
+                .name("name")
+                .description("description")
+                .duration(120)
+                .releaseDate(LocalDate.of(2000, 6, 1))
+                .mpa(MpaRating.builder()
+                        .id(1)
+                        .name("G")
+                        .build())
+                .genres(List.of(Genre.builder().id(1).build(), Genre.builder().id(2).build()))
+                .build();
+        film = filmStorage.addFilm(film);
+        final Long filmId = film.getId();
+        filmStorage.updateFilmGenres(filmId, Set.of(2, 3));
+        Optional<Film> filmFromBaseOptional = filmStorage.findFilmById(filmId);
+        assertThat(filmFromBaseOptional)
+                .isPresent()
+                .hasValueSatisfying(filmFromBase ->
+                        assertThat(filmFromBase.getGenres().stream().map(Genre::getId).toList())
+                                .isEqualTo(List.of(2, 3)));
+    }
+
+    @Test
+    public void writeBehindLikes() throws InterruptedException {
+        Film film = Film.builder()
+                .name("name")
+                .description("description")
+                .duration(120)
+                .releaseDate(LocalDate.of(2000, 6, 1))
+                .mpa(MpaRating.builder()
+                        .id(1)
+                        .name("G")
+                        .build())
+                .build();
+        filmStorage.addFilm(film);
+        User user = User.builder()
+                .email("mail@yandex.ru")
+                .login("login")
+                .name("name")
+                .birthday(LocalDate.of(2005, 5, 1))
+                .build();
+        userDbStorage.createUser(user);
+        LikeWriteBehind likeWriteBehind = new LikeWriteBehind(filmStorage, true, 10, 10,
+                Duration.ofMinutes(1), Duration.ZERO);
+        likeWriteBehind.enqueue(film.getId(), user.getId(), true);
+        likeWriteBehind.enqueue(film.getId(), user.getId(), false);
+        likeWriteBehind.enqueue(film.getId(), user.getId(), true);
+        assertThat(likeWriteBehind.flush()).isEqualTo(1);
+        likeWriteBehind.enqueue(film.getId(), user.getId(), true);
+        assertThat(likeWriteBehind.flush()).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT like_count FROM films WHERE id = ?", Long.class,
+                film.getId())).isEqualTo(1L);
+        assertThat(filmStorage.getPopularFilms(1).getFirst().getId()).isEqualTo(film.getId());
+    }
+
+    @Test
+    public void getRecommendedFilms() {
+        List<Long> filmIds = new ArrayList<>();
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            Film film = Film.builder()
+                    .name("name" + i)
+                    .description("description")
+                    .duration(120)
+                    .releaseDate(LocalDate.of(2000, 6, 1))
+                    .mpa(MpaRating.builder()
+                            .id(1)
+                            .name("G")
+                            .build())
+                    .build();
+            filmStorage.addFilm(film);
+            filmIds.add(film.getId());
+            User user = User.builder()
+                    .email("user" + i + "@yandex.ru")
+                    .login("login" + i)
+                    .name("name")
+                    .birthday(LocalDate.of(2005, 5, 1))
+                    .build();
+            userDbStorage.createUser(user);
+            userIds.add(user.getId());
+        }
+        filmStorage.addLikeToFilm(filmIds.get(0), userIds.get(0));
+        filmStorage.addLikeToFilm(filmIds.get(1), userIds.get(0));
+        filmStorage.addLikeToFilm(filmIds.get(0), userIds.get(1));
+        filmStorage.addLikeToFilm(filmIds.get(1), userIds.get(1));
+        filmStorage.addLikeToFilm(filmIds.get(2), userIds.get(1));
+        filmStorage.addLikeToFilm(filmIds.get(0), userIds.get(2));
+        List<Film> films = filmStorage.getRecommendedFilms(userIds.get(0), 10);
+        assertThat(films.size()).isEqualTo(1);
+        assertThat(films.getFirst().getId()).isEqualTo(filmIds.get(2));
+        filmStorage.addLikeToFilm(filmIds.get(2), userIds.get(0));
+        assertThat(filmStorage.getRecommendedFilms(userIds.get(0), 10).size()).isEqualTo(0);
+    }
+
+    @Test
+    public void searchFilms() {
+        List<Long> filmIds = new ArrayList<>();
+        String[][] films = {
+                {"Матрица", "Хакер узнаёт правду о мире"},
+                {"Матрица: перезагрузка", "Продолжение истории Нео"},
+                {"Начало", "Сон внутри сна, как в матрице"}};
+        for (String[] nameAndDescription : films) {
+            Film film = Film.builder()
+                    .name(nameAndDescription[0])
+                    .description(nameAndDescription[1])
+                    .duration(120)
+                    .releaseDate(LocalDate.of(2000, 6, 1))
+                    .mpa(MpaRating.builder()
+                            .id(1)
+                            .name("G")
+                            .build())
+                    .build();
+            filmStorage.addFilm(film);
+            filmIds.add(film.getId());
+        }
+        User user = User.builder()
+                .email("user@yandex.ru")
+                .login("login")
+                .name("name")
+                .birthday(LocalDate.of(2005, 5, 1))
+                .build();
+        userDbStorage.createUser(user);
+        filmStorage.addLikeToFilm(filmIds.get(1), user.getId());
+
+        List<Film> found = filmStorage.searchFilms("матр", 10);
+        assertThat(found.size()).isEqualTo(3);
+        assertThat(found.get(0).getId()).isEqualTo(filmIds.get(1));
+        assertThat(found.get(1).getId()).isEqualTo(filmIds.get(0));
+        assertThat(found.get(2).getId()).isEqualTo(filmIds.get(2));
+        assertThat(filmStorage.searchFilms("матрца перезагрузка", 10).getFirst().getId()).isEqualTo(filmIds.get(1));
+        assertThat(filmStorage.searchFilms("узнает", 10).getFirst().getId()).isEqualTo(filmIds.get(0));
+
+        Film updated = filmStorage.findFilmById(filmIds.get(2)).orElseThrow();
+        updated.setName("Интерстеллар");
+        updated.setDescription("Космос");
+        filmStorage.updateFilm(updated);
+        assertThat(filmStorage.searchFilms("матр", 10).size()).isEqualTo(2);
+        filmStorage.removeFilm(filmIds.get(0));
+        assertThat(filmStorage.searchFilms("матр", 10).size()).isEqualTo(1);
+        assertThat(filmStorage.searchFilms("интерстелар", 10).getFirst().getId()).isEqualTo(filmIds.get(2));
+    }
+
+    @Test
+    public void getPopularFilmsByGenreMpaAndYear() {
+        List<Long> filmIds = new ArrayList<>();
+        int[][] mpaYearAndGenre = {{1, 2000, 1}, {1, 2001, 2}, {2, 2000, 1}};
+        for (int[] attributes : mpaYearAndGenre) {
+            Film film = Film.builder()
+                    .name("name" + filmIds.size())
+                    .description("description")
+                    .duration(120)
+                    .releaseDate(LocalDate.of(attributes[1], 6, 1))
+                    .mpa(MpaRating.builder()
+                            .id(attributes[0])
+                            .build())
+                    .genres(List.of(Genre.builder()
+                            .id(attributes[2])
+                            .build()))
+                    .build();
+            filmStorage.addFilm(film);
+            filmIds.add(film.getId());
+        }
+        User user = User.builder()
+                .email("user@yandex.ru")
+                .login("login")
+                .name("name")
+                .birthday(LocalDate.of(2005, 5, 1))
+                .build();
+        userDbStorage.createUser(user);
+        filmStorage.addLikeToFilm(filmIds.get(2), user.getId());
+
+        assertThat(filmStorage.getPopularFilms(10, 1, null, null).stream().map(Film::getId).toList())
+                .isEqualTo(List.of(filmIds.get(2), filmIds.get(0)));
+        assertThat(filmStorage.getPopularFilms(10, null, 1, null).stream().map(Film::getId).toList())
+                .isEqualTo(List.of(filmIds.get(0), filmIds.get(1)));
+        assertThat(filmStorage.getPopularFilms(10, 1, 1, 2000).stream().map(Film::getId).toList())
+                .isEqualTo(List.of(filmIds.get(0)));
+        assertThat(filmStorage.getPopularFilms(10, 6, null, null).isEmpty()).isTrue();
+
+        filmStorage.updateFilmGenres(filmIds.get(1), Set.of(1, 3));
+        Film updated = filmStorage.findFilmById(filmIds.get(0)).orElseThrow();
+        updated.setReleaseDate(LocalDate.of(2001, 1, 1));
+        filmStorage.updateFilm(updated);
+        assertThat(filmStorage.getPopularFilms(10, 1, null, 2001).stream().map(Film::getId).toList())
+                .isEqualTo(List.of(filmIds.get(0), filmIds.get(1)));
+        filmStorage.removeFilm(filmIds.get(2));
+        assertThat(filmStorage.getPopularFilms(10, null, null, 2000).isEmpty()).isTrue();
+    }
+
+    @Test
+    public void getTrendingFilms() {
+        List<Long> filmIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Film film = Film.builder()
+                    .name("name" + i)
+                    .description("description")
+                    .duration(120)
+                    .releaseDate(LocalDate.of(2000, 6, 1))
+                    .mpa(MpaRating.builder()
+                            .id(1)
+                            .build())
+                    .build();
+            filmStorage.addFilm(film);
+            filmIds.add(film.getId());
+        }
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            User user = User.builder()
+                    .email("user" + i + "@yandex.ru")
+                    .login("login" + i)
+                    .name("name")
+                    .birthday(LocalDate.of(2005, 5, 1))
+                    .build();
+            userDbStorage.createUser(user);
+            userIds.add(user.getId());
+        }
+        // Два лайка двухдневной давности учитываются только в недельном тренде
+        for (int i = 0; i < 2; i++) {
+            jdbcTemplate.update("INSERT INTO film_likes (film_id, user_id, created_at) VALUES (?, ?, ?)",
+                    filmIds.get(0), userIds.get(i), Timestamp.from(Instant.now().minus(Duration.ofDays(2))));
+        }
+        trendingFilms.load();
+        filmStorage.addLikeToFilm(filmIds.get(1), userIds.get(0));
+        filmStorage.addLikeToFilm(filmIds.get(2), userIds.get(0));
+        filmStorage.addLikeToFilm(filmIds.get(2), userIds.get(1));
+        trendingFilms.refresh();
+
+        assertThat(filmStorage.getTrendingFilms(TrendingPeriod.HOUR, 10).stream().map(Film::getId).toList())
+                .isEqualTo(List.of(filmIds.get(2), filmIds.get(1)));
+        assertThat(filmStorage.getTrendingFilms(TrendingPeriod.WEEK, 1).getFirst().getId())
+                .isEqualTo(filmIds.get(2));
+        assertThat(filmStorage.getTrendingFilms(TrendingPeriod.WEEK, 10).size()).isEqualTo(3);
+
+        filmStorage.removeLikeFromFilm(filmIds.get(2), userIds.get(0));
+        filmStorage.removeLikeFromFilm(filmIds.get(2), userIds.get(1));
+        userDbStorage.removeUser(userIds.get(1));
+        trendingFilms.refresh();
+        assertThat(filmStorage.getTrendingFilms(TrendingPeriod.HOUR, 10).stream().map(Film::getId).toList())
+                .isEqualTo(List.of(filmIds.get(1)));
+        assertThat(filmStorage.getTrendingFilms(TrendingPeriod.WEEK, 10).stream().map(Film::getId).toList())
+                .isEqualTo(List.of(filmIds.get(1), filmIds.get(0)));
+    }
+
+    @Test
+    public void entityVersionsChangeOnWrites() {
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Film film = Film.builder()
+                    .name("film" + i)
+                    .description("description")
+                    .duration(120)
+                    .releaseDate(LocalDate.of(2000, 1, 1))
+                    .mpa(MpaRating.builder()
+                            .id(1)
+                            .build())
+                    .build();
+            filmStorage.addFilm(film);
+            films.add(film);
+        }
+        User user = User.builder()
+                .email("user@yandex.ru")
+                .login("login")
+                .name("name")
+                .birthday(LocalDate.of(2005, 5, 1))
+                .build();
+        userDbStorage.createUser(user);
+        String firstFilmTag = entityVersions.filmTag(films.get(0).getId());
+        String secondFilmTag = entityVersions.filmTag(films.get(1).getId());
+        String catalogTag = entityVersions.catalogTag();
+
+        // Лайки не входят в представление фильма и меняют только версию каталога
+        filmStorage.addLikeToFilm(films.get(0).getId(), user.getId());
+        assertThat(entityVersions.filmTag(films.get(0).getId())).isEqualTo(firstFilmTag);
+        assertThat(entityVersions.catalogTag()).isNotEqualTo(catalogTag);
+
+        catalogTag = entityVersions.catalogTag();
+        films.get(0).setName("renamed");
+        filmStorage.updateFilm(films.get(0));
+        assertThat(entityVersions.filmTag(films.get(0).getId())).isNotEqualTo(firstFilmTag);
+        assertThat(entityVersions.filmTag(films.get(1).getId())).isEqualTo(secondFilmTag);
+        assertThat(entityVersions.catalogTag()).isNotEqualTo(catalogTag);
+    }
+}
@@ -0,0 +1,146 @@
+package ru.yandex.practicum.filmorate.dal.film;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.dal.user.UserStorage;
+import ru.yandex.practicum.filmorate.dto.film.FilmResponse;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:likes;DB_CLOSE_DELAY=-1",
+        "filmorate.likes.write-behind.enabled=true",
+        "filmorate.likes.write-behind.max-delay=PT1H"
+})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class LikeWriteBehindTest {
+
+    private final LikeWriteBehind likeWriteBehind;
+    private final FilmService filmService;
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    public void afterEach() {
+        likeWriteBehind.flush();
+        jdbcTemplate.execute("DELETE FROM films");
+        jdbcTemplate.execute("DELETE FROM users");
+    }
+
+    @Test
+    public void flushUserWritesOnlyWhenUserHasPendingChanges() {
+        long filmId = addFilm("film");
+        long userId = addUser("user");
+        long otherUserId = addUser("other");
+
+        filmService.addLike(filmId, userId);
+        likeWriteBehind.flushUser(otherUserId);
+        assertThat(countLikes()).isZero();
+
+        likeWriteBehind.flushUser(userId);
+        assertThat(countLikes()).isEqualTo(1);
+
+        filmService.removeLike(filmId, userId);
+        likeWriteBehind.flushUser(userId);
+        assertThat(countLikes()).isZero();
+    }
+
+    @Test
+    public void recommendationsSeePendingLikes() {
+        long firstFilmId = addFilm("first");
+        long secondFilmId = addFilm("second");
+        long userId = addUser("user");
+        long neighbourId = addUser("neighbour");
+
+        filmService.addLike(firstFilmId, neighbourId);
+        filmService.addLike(secondFilmId, neighbourId);
+        filmService.addLike(firstFilmId, userId);
+
+        assertThat(filmService.getRecommendedFilms(userId, 10))
+                .extracting(FilmResponse::getId)
+                .containsExactly(secondFilmId);
+    }
+
+    // Фоновая запись уже забрала изменение пользователя из очереди, но ещё не закончилась:
+    // flushUser должен дождаться её, а не вернуться сразу
+    @Test
+    public void flushUserWaitsForBatchInFlight() throws Exception {
+        FilmStorage storage = mock(FilmStorage.class);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Collection<LikeChange>> written = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            written.add(invocation.getArgument(0));
+            return null;
+        }).when(storage).applyLikeChanges(any());
+        LikeWriteBehind writeBehind = new LikeWriteBehind(storage, false, 100, 100,
+                Duration.ofHours(1), Duration.ofSeconds(1));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            writeBehind.enqueue(1, 1, true);
+            CompletableFuture<Integer> backgroundFlush = CompletableFuture.supplyAsync(writeBehind::flush, executor);
+            assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+
+            CompletableFuture<Void> flushUser = CompletableFuture.runAsync(() -> writeBehind.flushUser(1), executor);
+            assertThatThrownBy(() -> flushUser.get(200, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+
+            release.countDown();
+            flushUser.get(5, TimeUnit.SECONDS);
+            assertThat(written).hasSize(1);
+            assertThat(backgroundFlush.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private long addFilm(String name) {
+        return filmStorage.addFilm(Film.builder()
+                .name(name)
+                .description("description")
+                .duration(120)
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .mpa(MpaRating.builder()
+                        .id(1)
+                        .build())
+                .build()).getId();
+    }
+
+    private long addUser(String login) {
+        return userStorage.createUser(User.builder()
+                .email(login + "@yandex.ru")
+                .login(login)
+                .name("name")
+                .birthday(LocalDate.of(2005, 5, 1))
+                .build()).getId();
+    }
+
+    private Integer countLikes() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM film_likes", Integer.class);
+    }
+}
@@ -7,12 +7,19 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.dal.IdFilter;
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
 import ru.yandex.practicum.filmorate.model.User;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 
 @JdbcTest
 @AutoConfigureTestDatabase
@@ -22,6 +29,7 @@ public class UserDbStorageTest {
 
     private final UserDbStorage userDbStorage;
     private final JdbcTemplate jdbcTemplate;
+    private final IdFilter userIdFilter;
 
     @AfterEach
     public void afterEach() {
@@ -194,4 +202,90 @@ public class UserDbStorageTest {
         assertThat(userFriends.size()).isEqualTo(1);
         assertThat(userFriends.getFirst().getId()).isEqualTo(secondUserId);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void getUsersPage() {
+        User user = User.builder()
+                .email("user@yandex.ru")
+                .login("login")
+                .name("name")
+                .birthday(LocalDate.of(1992, 4, 16))
+                .build();
+        userDbStorage.createUser(user);
+        final long firstUserId = user.getId();
+        user.setEmail("user2@yandex.ru");
+        user.setLogin("login2");
+        userDbStorage.createUser(user);
+        final long secondUserId = user.getId();
+        List<User> firstPage = userDbStorage.getUsersPage(0, 1);
+        assertThat(firstPage.size()).isEqualTo(1);
+        assertThat(firstPage.getFirst().getId()).isEqualTo(firstUserId);
+        List<User> secondPage = userDbStorage.getUsersPage(firstUserId, 10);
+        assertThat(secondPage.size()).isEqualTo(1);
+        assertThat(secondPage.getFirst().getId()).isEqualTo(secondUserId);
+    }
+
+    @Test
+    public void getFriendSuggestions() {
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            User user = User.builder()
+                    .email("user" + i + "@yandex.ru")
+                    .login("login" + i)
+                    .name("name" + i)
+                    .birthday(LocalDate.of(1992, 4, 16))
+                    .build();
+            userDbStorage.createUser(user);
+            userIds.add(user.getId());
+        }
+        userDbStorage.addFriend(userIds.get(0), userIds.get(1));
+        userDbStorage.addFriend(userIds.get(0), userIds.get(2));
+        userDbStorage.addFriend(userIds.get(1), userIds.get(0));
+        userDbStorage.addFriend(userIds.get(1), userIds.get(2));
+        userDbStorage.addFriend(userIds.get(1), userIds.get(3));
+        userDbStorage.addFriend(userIds.get(2), userIds.get(3));
+        userDbStorage.addFriend(userIds.get(2), userIds.get(4));
+        List<FriendSuggestion> suggestions = userDbStorage.getFriendSuggestions(userIds.get(0), 10);
+        assertThat(suggestions.size()).isEqualTo(2);
+        assertThat(suggestions.get(0).getUser().getId()).isEqualTo(userIds.get(3));
+        assertThat(suggestions.get(0).getMutualFriends()).isEqualTo(2);
+        assertThat(suggestions.get(1).getUser().getId()).isEqualTo(userIds.get(4));
+        assertThat(suggestions.get(1).getMutualFriends()).isEqualTo(1);
+    }
+
+    @Test
+    public void writesRelyOnConstraints() {
+        User user = User.builder()
+                .email("user@yandex.ru")
+                .login("login")
+                .name("name")
+                .birthday(LocalDate.of(1992, 4, 16))
+                .build();
+        userDbStorage.createUser(user);
+        final long userId = user.getId();
+        user.setLogin("login2");
+        assertThatThrownBy(() -> userDbStorage.createUser(user)).isInstanceOf(DuplicateKeyException.class);
+        assertThatThrownBy(() -> userDbStorage.addFriend(userId, userId + 1000))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        assertThat(userDbStorage.getExistingUserIds(userId, userId + 1000)).isEqualTo(Set.of(userId));
+        assertThat(userDbStorage.removeFriend(userId, userId + 1000)).isFalse();
+    }
+
+    @Test
+    public void userIdFilter() {
+        User user = User.builder()
+                .email("user@yandex.ru")
+                .login("login")
+                .name("name")
+                .birthday(LocalDate.of(1992, 4, 16))
+                .build();
+        userDbStorage.createUser(user);
+        final long userId = user.getId();
+        assertThat(userIdFilter.mightContain(userId)).isTrue();
+        assertThat(userIdFilter.mightContain(userId + 1000)).isFalse();
+        assertThat(userDbStorage.getUserById(userId + 1000)).isEmpty();
+        userDbStorage.removeUser(userId);
+        assertThat(userIdFilter.mightContain(userId)).isFalse();
+        assertThat(userDbStorage.getUserById(userId)).isEmpty();
+    }
+}